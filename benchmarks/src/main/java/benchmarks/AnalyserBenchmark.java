@@ -0,0 +1,135 @@
+package benchmarks;
+
+import client.ServerMessageAnalyser;
+import config.MinesweeperConfig;
+import config.Protocol;
+import exception.UnauthorizeMoveException;
+import messages.BinaryCodec;
+import model.Game;
+import model.GameCommands;
+import model.ServerResponseType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.ClientCommand;
+import server.ClientMessageAnalyser;
+import utils.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Lawal Benjamin
+ * Benchmarks of the analysers of the messages, on both sides of the connection, at several board sizes.
+ * The server analyses the commands of the client from the bytes received, into a command reused by the session.
+ * The client analyses the boards sent by the server, as text or as binary frames.
+ * @see ClientMessageAnalyser
+ * @see ServerMessageAnalyser
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyserBenchmark {
+
+    /**
+     * A command of the client, with coordinates at the end of the board.
+     */
+    @State(Scope.Thread)
+    public static class ClientMessage {
+        @Param({"7", "32", "128"})
+        public int size;
+
+        @Param({"TRY", "FLAG", "CHEAT", "BATCH"})
+        public String command;
+
+        byte[] message;
+        ClientCommand clientCommand;
+
+        @Setup
+        public void setup(){
+            int last = size - 1;
+            String text;
+            switch (command){
+                case "TRY":
+                    text = move(Protocol.TRY_MESSAGE, last, last);
+                    break;
+                case "FLAG":
+                    text = move(Protocol.FLAG_MESSAGE, last, last);
+                    break;
+                case "CHEAT":
+                    text = Protocol.CHEAT_MESSAGE;
+                    break;
+                default:
+                    text = move(Protocol.TRY_MESSAGE, last, last) + Protocol.RETURN_CHAR
+                            + move(Protocol.FLAG_MESSAGE, 0, last) + Protocol.RETURN_CHAR
+                            + move(Protocol.CHORD_MESSAGE, last, 0);
+                    break;
+            }
+            message = (text + Protocol.END_CLIENT_MESSAGE).getBytes(StandardCharsets.ISO_8859_1);
+            clientCommand = new ClientCommand();
+        }
+
+        private static String move(String keyword, int x, int y){
+            return keyword + Protocol.SPACE_CHAR + x + Protocol.SPACE_CHAR + y;
+        }
+    }
+
+    /**
+     * A board sent by the server after the first move of a game, as text and as a binary frame.
+     */
+    @State(Scope.Thread)
+    public static class ServerMessage {
+        @Param({"7", "32", "128"})
+        public int size;
+
+        String message;
+        byte[] frame;
+
+        @Setup
+        public void setup() throws UnauthorizeMoveException {
+            //The client checks the boards against the configured size
+            MinesweeperConfig.BOARD_SIZE = size;
+            Game game = new Game(size, Math.max(1, size * size * 15 / 100), 42);
+            game.playGame(size / 2, size / 2, GameCommands.TRY);
+            message = StringUtils.boardToStringFormating(game.getBoard(), Protocol.RETURN_CHAR) + Protocol.RETURN_CHAR;
+            byte[] encoded = BinaryCodec.encodeBoard(ServerResponseType.CONTINUE, game.getBoard());
+            //The receiver gives the frame without its length
+            frame = Arrays.copyOfRange(encoded, BinaryCodec.LENGTH_SIZE, encoded.length);
+        }
+    }
+
+    /**
+     * The analysis done by the server for each message, into the command reused by the session.
+     */
+    @Benchmark
+    public GameCommands clientMessage(ClientMessage state){
+        ClientMessageAnalyser.analyse(state.message, 0, state.message.length, -1, state.clientCommand);
+        return state.clientCommand.getCommand();
+    }
+
+    @Benchmark
+    public String[] clientMessageAsString(ClientMessage state){
+        return ClientMessageAnalyser.analyse(new String(state.message, StandardCharsets.ISO_8859_1));
+    }
+
+    @Benchmark
+    public String[] serverBoard(ServerMessage state){
+        return ServerMessageAnalyser.analyse(state.message);
+    }
+
+    @Benchmark
+    public String[] serverBinaryBoard(ServerMessage state){
+        return ServerMessageAnalyser.analyseBinary(state.frame);
+    }
+}
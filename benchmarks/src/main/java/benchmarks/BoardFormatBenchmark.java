@@ -0,0 +1,50 @@
+package benchmarks;
+
+import config.Protocol;
+import exception.UnauthorizeMoveException;
+import model.Game;
+import model.GameCommands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Lawal Benjamin
+ * Benchmark of the formatting of a board as text, done for each board sent with the text protocol.
+ * @see StringUtils#boardToStringFormating(char[][], String)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardFormatBenchmark {
+    @Param({"7", "32", "128"})
+    public int size;
+
+    private char[][] board;
+
+    @Setup
+    public void setup() throws UnauthorizeMoveException {
+        Game game = new Game(size, Math.max(1, size * size * 15 / 100), 42);
+        game.playGame(size / 2, size / 2, GameCommands.TRY);
+        board = game.getBoard();
+    }
+
+    @Benchmark
+    public String boardToStringFormating(){
+        return StringUtils.boardToStringFormating(board, Protocol.RETURN_CHAR);
+    }
+}
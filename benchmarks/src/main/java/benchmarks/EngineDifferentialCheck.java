@@ -0,0 +1,155 @@
+package benchmarks;
+
+import exception.UnauthorizeMoveException;
+import model.BitboardGame;
+import model.Game;
+import model.GameCommands;
+import model.GameStatus;
+import model.IGame;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * @author Lawal Benjamin
+ * This class checks that BitboardGame plays exactly like Game, the engine it replaces.
+ * Both engines play the same random games of TRY, FLAG and CHORD with the same seed; after every move
+ * the status, the board, the counters and the changed cells must be the same, and so must the mines.
+ * Half of the games reuse the previous engines with reset, as the server does between two games.
+ * It then measures the memory kept by a game of FOOTPRINT_SIZE cells per side with each engine,
+ * once it has been played, rendered and reset as the server does between two games.
+ * Run : java -cp benchmarks/target/benchmarks.jar benchmarks.EngineDifferentialCheck [games] [seed]
+ */
+public class EngineDifferentialCheck {
+    private static final GameCommands[] MOVES = {GameCommands.TRY, GameCommands.FLAG, GameCommands.CHORD};
+    private static final int FOOTPRINT_SIZE = 1000;
+    private static final int FOOTPRINT_GAMES = 16;//Games kept at once, so that the noise of the heap is shared
+    private static final double MAX_BITBOARD_BITS_PER_CELL = 8;//The bitsets are about 5 bits per cell
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        SplittableRandom random = new SplittableRandom(seed);
+        Game game = null;
+        BitboardGame bitboardGame = null;
+        long moves = 0;
+        for (int i = 0; i < games; i++) {
+            long gameSeed = random.nextLong();
+            if (game == null || random.nextBoolean()) {
+                int size = 2 + random.nextInt(40);
+                int numberOfMines = 1 + random.nextInt(size * size * 3 / 10 + 1);
+                game = new Game(size, numberOfMines, gameSeed);
+                bitboardGame = new BitboardGame(size, numberOfMines, gameSeed);
+            } else {
+                game.reset(gameSeed);
+                bitboardGame.reset(gameSeed);
+            }
+            String context = "game " + i + " (size " + game.getBoardSize() + ", mines " + game.getNumberOfMines() + ", seed " + gameSeed + ")";
+            moves += play(game, bitboardGame, random, context);
+        }
+        System.out.printf("%d games and %d moves played, the engines always agreed.%n", games, moves);
+        double gameBits = bitsPerCell(false);
+        double bitboardBits = bitsPerCell(true);
+        System.out.printf("Memory of a %dx%d game : Game %.1f bits per cell, BitboardGame %.1f bits per cell (%.1fx smaller).%n",
+                FOOTPRINT_SIZE, FOOTPRINT_SIZE, gameBits, bitboardBits, gameBits / bitboardBits);
+        check(bitboardBits <= MAX_BITBOARD_BITS_PER_CELL, "footprint", "BitboardGame keeps " + bitboardBits + " bits per cell");
+    }
+
+    /**
+     * Method to measure the heap kept by a played game. Each game plays a first move, renders its boards
+     * as the server does at the end of a game, is reset and plays the first move of the next game.
+     * @param isBitboard true for BitboardGame, false for Game
+     * @return the number of bits kept per cell
+     */
+    private static double bitsPerCell(boolean isBitboard) {
+        int numberOfMines = FOOTPRINT_SIZE * FOOTPRINT_SIZE * 15 / 100;
+        long before = usedMemory();
+        IGame[] games = new IGame[FOOTPRINT_GAMES];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = isBitboard ? new BitboardGame(FOOTPRINT_SIZE, numberOfMines, i) : new Game(FOOTPRINT_SIZE, numberOfMines, i);
+            playMove(games[i], FOOTPRINT_SIZE / 2, FOOTPRINT_SIZE / 2, GameCommands.TRY);
+            games[i].getBoard();
+            games[i].cheatBoard();
+            games[i].reset(i + FOOTPRINT_GAMES);
+            playMove(games[i], FOOTPRINT_SIZE / 2, FOOTPRINT_SIZE / 2, GameCommands.TRY);
+        }
+        long after = usedMemory();
+        check(games[games.length - 1].isGameStarted(), "footprint", "the game did not start");
+        return (after - before) * 8.0 / ((double) FOOTPRINT_GAMES * FOOTPRINT_SIZE * FOOTPRINT_SIZE);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Method to play a random game on both engines, until it ends or the move limit.
+     * @return the number of moves played
+     */
+    private static int play(Game game, BitboardGame bitboardGame, SplittableRandom random, String context) {
+        int size = game.getBoardSize();
+        int maxMoves = size * size * 2;
+        for (int move = 0; move < maxMoves; move++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            GameCommands command = move == 0 ? GameCommands.TRY : MOVES[random.nextInt(MOVES.length)];
+            String where = context + ", move " + move + " " + command + " " + x + " " + y;
+            GameStatus expected = playMove(game, x, y, command);
+            GameStatus actual = playMove(bitboardGame, x, y, command);
+            check(expected == actual, where, "status " + expected + " != " + actual);
+            compare(game, bitboardGame, where);
+            if (expected == GameStatus.FINISHED || expected == GameStatus.GAME_OVER) {
+                return move + 1;
+            }
+        }
+        return maxMoves;
+    }
+
+    private static GameStatus playMove(IGame game, int x, int y, GameCommands command) {
+        try {
+            return game.playGame(x, y, command);
+        } catch (UnauthorizeMoveException e) {
+            return null;
+        }
+    }
+
+    private static void compare(IGame expected, IGame actual, String where) {
+        int size = expected.getBoardSize();
+        check(Arrays.deepEquals(expected.getBoard(), actual.getBoard()), where, "boards differ");
+        if (expected.isGameStarted()) {
+            check(Arrays.deepEquals(expected.cheatBoard(), actual.cheatBoard()), where, "mines differ");
+        }
+        check(expected.isGameStarted() == actual.isGameStarted(), where, "started differs");
+        check(expected.getRemainingSafeCells() == actual.getRemainingSafeCells(), where, "safe cells left differ");
+        check(expected.getFlagCount() == actual.getFlagCount(), where, "flag counts differ");
+        check(expected.getChangedCellCount() == actual.getChangedCellCount(), where, "changed cell counts differ");
+        int[] expectedCells = changedCells(expected);
+        int[] actualCells = changedCells(actual);
+        check(Arrays.equals(expectedCells, actualCells), where, "changed cells differ");
+        for (int cell : expectedCells) {
+            check(cell >= 0 && cell < size * size, where, "changed cell out of the board : " + cell);
+        }
+    }
+
+    /**
+     * Method to get the cells changed by the last move, sorted: the engines may visit them in a different order.
+     */
+    private static int[] changedCells(IGame game) {
+        int[] cells = new int[game.getChangedCellCount()];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = game.getChangedCell(i);
+        }
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    private static void check(boolean condition, String where, String message) {
+        if (!condition) {
+            throw new AssertionError(where + " : " + message);
+        }
+    }
+}
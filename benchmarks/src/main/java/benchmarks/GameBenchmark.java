@@ -0,0 +1,211 @@
+package benchmarks;
+
+import config.GameEngine;
+import config.MinesweeperConfig;
+import exception.UnauthorizeMoveException;
+import model.BitboardGame;
+import model.Game;
+import model.GameCommands;
+import model.GameStatus;
+import model.MinePlacer;
+import model.RestorableGame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Lawal Benjamin
+ * Benchmarks of the moves of the classic game and of the bitboard game, at several board sizes.
+ * The mines cover about 15% of the board, as in a game of intermediate difficulty.
+ * A move changes the game. A single reveal takes tens of nanoseconds, too little to restore the game around it,
+ * so each call reveals REVEALS different cells on copies restored before the call, out of the measured time.
+ * A flood fill takes as long as a restore, so it is measured with its restore and compared to bigFloodFillRestore.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    private static final long SEED = 42;
+    private static final int REVEALS = 8192;//Reveals of a single reveal call, a tenth of a millisecond or more
+
+    /**
+     * A new game, reset before each first move.
+     */
+    @State(Scope.Thread)
+    public static class NewGame {
+        @Param({"7", "32", "128", "1000"})
+        public int size;
+        @Param({"CLASSIC", "BITBOARD"})
+        public GameEngine engine;
+        int numberOfMines;
+        int center;
+        RestorableGame game;
+        long nextSeed;
+
+        @Setup
+        public void setup(){
+            numberOfMines = minesFor(size);
+            center = (size / 2) * size + size / 2;
+            game = newGame(engine, size, numberOfMines, SEED);
+        }
+    }
+
+    /**
+     * Copies of a started game, with the hidden cells next to a mine: each of these cells only reveals itself.
+     * Only every other such cell is revealed, so that a copy is never finished, and there are enough copies for REVEALS cells.
+     */
+    @State(Scope.Thread)
+    public static class RevealGame {
+        @Param({"7", "32", "128", "1000"})
+        public int size;
+        @Param({"CLASSIC", "BITBOARD"})
+        public GameEngine engine;
+        RestorableGame[] games;
+        char[][] hiddenBoard;
+        int[] mines;
+        int[] cells;//The cells revealed in each copy
+
+        @Setup
+        public void setup(){
+            int numberOfMines = minesFor(size);
+            hiddenBoard = hiddenBoard(size);
+            mines = MinePlacer.placeMines(size * size, numberOfMines, (size / 2) * size + size / 2, new SplittableRandom(SEED));
+            RestorableGame game = newGame(engine, size, numberOfMines, SEED);
+            game.restore(hiddenBoard, mines);
+            char[][] cheatBoard = game.cheatBoard();
+            int[] numberCells = new int[size * size];
+            int count = 0;
+            for(int cell = 0; cell < size * size; cell++){
+                char c = cheatBoard[cell / size][cell % size];
+                if(c != MinesweeperConfig.BOMB_CHAR && c != '0'){
+                    numberCells[count++] = cell;
+                }
+            }
+            cells = new int[Math.min(REVEALS, (count + 1) / 2)];
+            for(int i = 0; i < cells.length; i++){
+                cells[i] = numberCells[i * 2];
+            }
+            games = new RestorableGame[(REVEALS + cells.length - 1) / cells.length];
+            for(int i = 0; i < games.length; i++){
+                games[i] = newGame(engine, size, numberOfMines, SEED);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void restore(){
+            for(RestorableGame game : games){
+                game.restore(hiddenBoard, mines);
+            }
+        }
+    }
+
+    /**
+     * A started game with a single mine in a corner: the move in the other corner reveals the whole board.
+     */
+    @State(Scope.Thread)
+    public static class FloodGame {
+        @Param({"7", "32", "128", "1000"})
+        public int size;
+        @Param({"CLASSIC", "BITBOARD"})
+        public GameEngine engine;
+        RestorableGame game;
+        char[][] hiddenBoard;
+        int[] mines;
+
+        @Setup
+        public void setup(){
+            hiddenBoard = hiddenBoard(size);
+            mines = new int[]{0};
+            game = newGame(engine, size, 1, SEED);
+        }
+    }
+
+    /**
+     * The first move of a new game: the board is reset, the mines are placed around the move and the cells are revealed.
+     */
+    @Benchmark
+    public GameStatus firstMove(NewGame state) throws UnauthorizeMoveException {
+        state.game.reset(state.nextSeed++);
+        return state.game.playGame(state.size / 2, state.size / 2, GameCommands.TRY);
+    }
+
+    /**
+     * The placement of the mines done by the first move, as Game.fillMines does it.
+     */
+    @Benchmark
+    public int[] fillMines(NewGame state){
+        return MinePlacer.placeMines(state.size * state.size, state.numberOfMines, state.center, new SplittableRandom(state.nextSeed++));
+    }
+
+    /**
+     * The reveal of a cell next to a mine, REVEALS times on different cells.
+     */
+    @Benchmark
+    @OperationsPerInvocation(REVEALS)
+    public GameStatus singleReveal(RevealGame state) throws UnauthorizeMoveException {
+        GameStatus status = null;
+        int left = REVEALS;
+        for(RestorableGame game : state.games){
+            int count = Math.min(left, state.cells.length);
+            for(int i = 0; i < count; i++){
+                int cell = state.cells[i];
+                status = game.playGame(cell / state.size, cell % state.size, GameCommands.TRY);
+            }
+            left -= count;
+        }
+        return status;
+    }
+
+    /**
+     * The restore of the game and the move revealing the whole board: the flood fill takes the difference with bigFloodFillRestore.
+     */
+    @Benchmark
+    public GameStatus bigFloodFill(FloodGame state) throws UnauthorizeMoveException {
+        state.game.restore(state.hiddenBoard, state.mines);
+        return state.game.playGame(state.size - 1, state.size - 1, GameCommands.TRY);
+    }
+
+    /**
+     * The restore of the game alone, the baseline of bigFloodFill.
+     */
+    @Benchmark
+    public RestorableGame bigFloodFillRestore(FloodGame state){
+        state.game.restore(state.hiddenBoard, state.mines);
+        return state.game;
+    }
+
+    private static RestorableGame newGame(GameEngine engine, int size, int numberOfMines, long seed){
+        if(engine == GameEngine.BITBOARD){
+            return new BitboardGame(size, numberOfMines, seed);
+        }
+        return new Game(size, numberOfMines, seed);
+    }
+
+    private static int minesFor(int size){
+        return Math.max(1, size * size * 15 / 100);
+    }
+
+    private static char[][] hiddenBoard(int size){
+        char[][] board = new char[size][size];
+        for(char[] line : board){
+            Arrays.fill(line, MinesweeperConfig.EMPTY_CHAR);
+        }
+        return board;
+    }
+}
@@ -0,0 +1,85 @@
+package benchmarks;
+
+import config.Protocol;
+import exception.UnauthorizeMoveException;
+import messages.MessageReceiver;
+import messages.MessageSender;
+import model.Game;
+import model.GameCommands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.StringUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Lawal Benjamin
+ * Benchmark of a board sent by a message sender and received by a message receiver, through a loopback connection.
+ * Both ends are driven by the same thread: the board is written, then read back from the other end.
+ * The socket buffers hold the largest board, so the write never waits for the read.
+ * @see MessageSender
+ * @see MessageReceiver
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RoundTripBenchmark {
+    private static final int SOCKET_BUFFER = 256 * 1024;
+
+    @Param({"7", "32", "128"})
+    public int size;
+
+    private ServerSocket serverSocket;
+    private Socket sendingSocket;
+    private Socket receivingSocket;
+    private MessageSender messageSender;
+    private MessageReceiver messageReceiver;
+    private String message;
+
+    @Setup
+    public void setup() throws IOException, UnauthorizeMoveException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        serverSocket.setReceiveBufferSize(SOCKET_BUFFER);
+        sendingSocket = new Socket();
+        sendingSocket.setSendBufferSize(SOCKET_BUFFER);
+        sendingSocket.setTcpNoDelay(true);
+        sendingSocket.connect(serverSocket.getLocalSocketAddress());
+        receivingSocket = serverSocket.accept();
+        messageSender = new MessageSender(sendingSocket);
+        messageReceiver = new MessageReceiver("BENCHMARK", receivingSocket, SOCKET_BUFFER, Protocol.END_SERVER_MESSAGE);
+
+        Game game = new Game(size, Math.max(1, size * size * 15 / 100), 42);
+        game.playGame(size / 2, size / 2, GameCommands.TRY);
+        message = StringUtils.boardToStringFormating(game.getBoard(), Protocol.RETURN_CHAR) + Protocol.RETURN_CHAR;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sendingSocket.close();
+        receivingSocket.close();
+        serverSocket.close();
+    }
+
+    @Benchmark
+    public String sendAndReceive(){
+        messageSender.sendMessage(message);
+        return messageReceiver.receiveMessage();
+    }
+}
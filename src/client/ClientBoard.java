@@ -0,0 +1,56 @@
+package client;
+
+import config.Protocol;
+import utils.StringUtils;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents the board as known by the client when the server sends delta updates.
+ * The whole board is received once, then each delta update only changes the cells of the runs it contains.
+ */
+public class ClientBoard {
+    private char[][] board;
+
+    /**
+     * Method to replace the whole board, after a full board was received.
+     * @param board The board received
+     */
+    public void setBoard(char[][] board){
+        this.board = board;
+    }
+
+    /**
+     * Method to apply a delta update to the board.
+     * Each line after the header is a run "x y cells": the cells starting at x,y along the line.
+     * @param message The delta update, already checked by the ServerMessageAnalyser
+     * @return true if the update was applied, false if the board is unknown or the update does not fit in it.
+     */
+    public boolean applyDelta(String message){
+        if(board == null){
+            return false;
+        }
+        String[] lines = message.split(Protocol.RETURN_CHAR);
+        for(int i = 1; i < lines.length; i++){
+            if(lines[i].isEmpty()){
+                continue;
+            }
+            String[] run = lines[i].split(Protocol.SPACE_CHAR);
+            int x = Integer.parseInt(run[0]);
+            int y = Integer.parseInt(run[1]);
+            if(x >= board.length || y + run[2].length() > board[x].length){
+                return false;
+            }
+            run[2].getChars(0, run[2].length(), board[x], y);
+        }
+        return true;
+    }
+
+    public boolean isKnown(){
+        return board != null;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtils.boardToStringFormating(board, Protocol.RETURN_CHAR);
+    }
+}
@@ -6,5 +6,10 @@ public class GameMenu {
         System.out.println("2) Flag") ;
         System.out.println("3) Cheat");
         System.out.println("4) QUIT");
+        System.out.println("5) Synchronize the board");
+        System.out.println("6) Move the view (endless board)");
+        System.out.println("7) New game");
+        System.out.println("8) Play several moves");
+        System.out.println("9) Chord (reveal around a number with all its flags)");
     }
 }
@@ -2,13 +2,17 @@ package client;
 
 import config.MinesweeperConfig;
 import config.Protocol;
+import messages.BinaryCodec;
 import messages.MessageReceiver;
 import messages.MessageSender;
+import model.GameCommands;
 import model.ServerResponseType;
 import utils.Console;
 
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.UUID;
+import java.util.function.Supplier;
 
 import static config.MinesweeperConfig.MAX_MESSAGE_COUNT;
 import static config.MinesweeperConfig.MESSAGE_DELAY;
@@ -26,13 +30,35 @@ public class MinesweeperClient implements Runnable {
     private MessageReceiver messageReceiver;
     private MessageSender messageSender;
     private boolean isRunning;
+    private final ClientBoard clientBoard;//Board updated by the delta updates
+    private boolean isCheatRequested;
+    private boolean isBinaryMode;//The handshake of the binary protocol succeeded
+    private final boolean isDeltaMode;
+    private final UUID resumeToken;//Token of the game to resume, null to play a new game
 
     public MinesweeperClient(){
+        this(null);
+    }
+
+    public MinesweeperClient(UUID resumeToken){
+        this.resumeToken = resumeToken;
         this.isRunning = true;
+        this.clientBoard = new ClientBoard();
+        //The binary protocol always sends the whole board, packed
+        this.isDeltaMode = MinesweeperConfig.DELTA_UPDATES && !MinesweeperConfig.BINARY_PROTOCOL;
     }
 
     public static void main(String[] args) {
-        new MinesweeperClient().run();
+        UUID resumeToken = null;
+        if(args.length > 0){
+            //The token printed by a previous client whose connection dropped
+            try {
+                resumeToken = UUID.fromString(args[0]);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid session token, a new game will be started.");
+            }
+        }
+        new MinesweeperClient(resumeToken).run();
     }
 
     @Override
@@ -87,6 +113,21 @@ public class MinesweeperClient implements Runnable {
      */
     private void play(){
         try {
+            if(MinesweeperConfig.BINARY_PROTOCOL && isRunning){
+                switchToBinary();
+            }
+            if(isDeltaMode && isRunning){
+                //Ask for delta updates, the server answers with the whole board
+                messageSender.sendMessage(Protocol.DELTA_MESSAGE + Protocol.END_CLIENT_MESSAGE);
+                receiveResponse();
+            }
+            if(resumeToken != null && isRunning){
+                sendSessionCommand(GameCommands.RESUME);
+                receiveResponse();
+            }else if(MinesweeperConfig.SESSION_RESUME && isRunning){
+                sendSessionCommand(GameCommands.SESSION);
+                receiveResponse();
+            }
             while(isRunning){
                 GameMenu.displayMenu();
                 int command = getCommand();//Get the command from the player
@@ -94,13 +135,7 @@ public class MinesweeperClient implements Runnable {
                 if(!result){
                     continue;
                 }
-                String message = waitForResponse();
-                if(message != null){
-                    processResponse(
-                            analyzeMessage(message),
-                            message
-                    );
-                }
+                receiveResponse();
             }
         } catch (RuntimeException e) {
             System.out.printf("[CLIENT] An error occurred. [%s]\n", e.getMessage());
@@ -109,6 +144,59 @@ public class MinesweeperClient implements Runnable {
         }
     }
 
+    /**
+     * Method to switch the connection to the binary protocol.
+     * The server answers the handshake with a last text message, the next messages of both sides are binary.
+     */
+    private void switchToBinary(){
+        messageSender.sendMessage(Protocol.BINARY_MESSAGE + Protocol.END_CLIENT_MESSAGE);
+        String message = waitForResponse(messageReceiver::receiveMessage);
+        if((Protocol.BINARY_MESSAGE + Protocol.END_SERVER_MESSAGE).equals(message)){
+            messageReceiver.switchToBinary();
+            this.isBinaryMode = true;
+        }else if(message != null){
+            System.out.println("The server does not support the binary protocol.");
+            processResponse(analyzeMessage(message), message);
+        }
+    }
+
+    /**
+     * Method to ask for the session token (SESSION) or to resume the game of a token (RESUME), with the protocol in use.
+     * @param command SESSION or RESUME
+     */
+    private void sendSessionCommand(GameCommands command){
+        if(isBinaryMode){
+            messageSender.sendBytes(command == GameCommands.RESUME
+                    ? BinaryCodec.encodeCommand(command, resumeToken)
+                    : BinaryCodec.encodeCommand(command, 0, 0));
+        }else if(command == GameCommands.RESUME){
+            messageSender.sendMessage(Protocol.RESUME_MESSAGE + Protocol.SPACE_CHAR + resumeToken + Protocol.END_CLIENT_MESSAGE);
+        }else {
+            messageSender.sendMessage(Protocol.SESSION_MESSAGE + Protocol.END_CLIENT_MESSAGE);
+        }
+    }
+
+    /**
+     * Method to wait for the response of the server and to process it, with the protocol in use.
+     */
+    private void receiveResponse(){
+        if(isBinaryMode){
+            byte[] message = waitForResponse(messageReceiver::receiveBinaryMessage);
+            if(message != null){
+                String[] analysedResponse = ServerMessageAnalyser.analyseBinary(message);
+                processResponse(analysedResponse, analysedResponse == null ? null : analysedResponse[1]);
+            }
+            return;
+        }
+        String message = waitForResponse(messageReceiver::receiveMessage);
+        if(message != null){
+            processResponse(
+                    analyzeMessage(message),
+                    message
+            );
+        }
+    }
+
     /**
      * Method to process the response from the server.
      * @param analysedResponse The analyzed response from the server. It contains the command and the message as an array.
@@ -124,9 +212,21 @@ public class MinesweeperClient implements Runnable {
             case WIN :
             case LOSE :
                 System.out.println(message);
-                this.isRunning = false;
+                playAgain();
                 break;
             case CONTINUE :
+                if(isDeltaMode && !isCheatRequested){
+                    clientBoard.setBoard(ServerMessageAnalyser.parseBoard(message));
+                }
+                System.out.println(message);
+                break;
+            case DELTA :
+                if(!clientBoard.applyDelta(message)){
+                    System.out.println("The board is out of sync. Please synchronize the board.");
+                    break;
+                }
+                System.out.println(clientBoard);
+                break;
             case INVALID_RANGE:
                 System.out.println(message);
                 break;
@@ -134,6 +234,12 @@ public class MinesweeperClient implements Runnable {
             case GAME_NOT_STARTED:
                 System.out.println(analysedResponse[1]);
                 break;
+            case SESSION:
+                System.out.printf("Your session token : %s\nIf the connection drops, start the client with it to resume the game.\n", analysedResponse[1]);
+                break;
+            case SESSION_NOT_FOUND:
+                System.out.println("The game can't be resumed, it is over or it expired. A new game is started.");
+                break;
             default:
                 // UNKNOWN
                 this.isRunning = false;
@@ -142,6 +248,19 @@ public class MinesweeperClient implements Runnable {
         }
     }
 
+    /**
+     * Method to ask the player for another game once a game is over.
+     * The new game is played on the same connection, otherwise the client stops.
+     */
+    private void playAgain(){
+        String answer = Console.readString("Play another game? [y/n] : ");
+        if(answer == null || !answer.trim().equalsIgnoreCase("y") || !executeCommand(7)){
+            this.isRunning = false;
+            return;
+        }
+        receiveResponse();
+    }
+
     /**
      * Method to analyze the message from the server.
      * The message is analyzed and returned as an array.
@@ -161,8 +280,15 @@ public class MinesweeperClient implements Runnable {
      * @return true if the command was executed successfully, false otherwise.
      */
     private boolean executeCommand(int commandNumber){
-        //4 possibles command :
+        //5 possibles command :
         String message;
+        isCheatRequested = commandNumber == 3;
+        if(commandNumber == 8){
+            return executeBatch();
+        }
+        if(isBinaryMode){
+            return executeBinaryCommand(commandNumber);
+        }
         switch (commandNumber) {
             case 1:
                 //Reveal a cell
@@ -184,6 +310,19 @@ public class MinesweeperClient implements Runnable {
                 messageSender.sendMessage(message);
                 this.isRunning = false;
                 return true;
+            case 5:
+                message = String.format("%s%s",Protocol.SYNC_MESSAGE, Protocol.END_CLIENT_MESSAGE);
+                break;
+            case 6:
+                //Only an endless board can be moved
+                message = Protocol.VIEW_MESSAGE + " " + getView() + Protocol.END_CLIENT_MESSAGE;
+                break;
+            case 7:
+                message = Protocol.NEW_MESSAGE + Protocol.END_CLIENT_MESSAGE;
+                break;
+            case 9:
+                message = Protocol.CHORD_MESSAGE + " " + getPlay() + Protocol.END_CLIENT_MESSAGE;
+                break;
             default:
                 System.out.println("Invalid command. Please try again.");
                 return false;
@@ -192,26 +331,109 @@ public class MinesweeperClient implements Runnable {
         return messageSender.sendMessage(message);
     }
 
+    /**
+     * Method to send several moves in a single message. The server plays them in order and sends a single response,
+     * it stops at the first move that ends the game or is out of the board.
+     * @return true if the moves were sent, false otherwise.
+     */
+    private boolean executeBatch(){
+        String[] plays = Console.readString("Enter your plays [T x y, F x y, C x y, ...]: ").trim().split(" *, *");
+        GameCommands[] commands = new GameCommands[plays.length];
+        int[] xs = new int[plays.length];
+        int[] ys = new int[plays.length];
+        StringBuilder message = new StringBuilder();
+        try {
+            for(int i = 0; i < plays.length; i++){
+                String[] play = plays[i].split(" +");
+                commands[i] = play.length != 3 ? null : play[0].equalsIgnoreCase("T") ? GameCommands.TRY
+                        : play[0].equalsIgnoreCase("F") ? GameCommands.FLAG : play[0].equalsIgnoreCase("C") ? GameCommands.CHORD : null;
+                if(commands[i] == null){
+                    throw new NumberFormatException();
+                }
+                xs[i] = Integer.parseInt(play[1]);
+                ys[i] = Integer.parseInt(play[2]);
+                if(i > 0){
+                    message.append(Protocol.RETURN_CHAR);
+                }
+                message.append(commands[i] == GameCommands.TRY ? Protocol.TRY_MESSAGE
+                                : commands[i] == GameCommands.FLAG ? Protocol.FLAG_MESSAGE : Protocol.CHORD_MESSAGE)
+                        .append(' ').append(xs[i]).append(' ').append(ys[i]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid plays. Please try again.");
+            return false;
+        }
+        if(isBinaryMode){
+            return messageSender.sendBytes(BinaryCodec.encodeBatch(commands, xs, ys, plays.length));
+        }
+        return messageSender.sendMessage(message + Protocol.END_CLIENT_MESSAGE);
+    }
+
+    /**
+     * Method to execute the command basing on the GameMenu with the binary protocol.
+     * @param commandNumber The number of the command selected by the player.
+     * @return true if the command was executed successfully, false otherwise.
+     */
+    private boolean executeBinaryCommand(int commandNumber){
+        switch (commandNumber) {
+            case 1:
+            case 2:
+            case 6:
+            case 9:
+                //The coordinates are sent as numbers, they must be read before sending anything
+                String[] play = (commandNumber == 6 ? getView() : getPlay()).trim().split(" +");
+                try {
+                    if(play.length != 2){
+                        throw new NumberFormatException();
+                    }
+                    GameCommands command = commandNumber == 1 ? GameCommands.TRY : commandNumber == 2 ? GameCommands.FLAG
+                            : commandNumber == 9 ? GameCommands.CHORD : GameCommands.VIEW;
+                    return messageSender.sendBytes(BinaryCodec.encodeCommand(command, Integer.parseInt(play[0]), Integer.parseInt(play[1])));
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid play. Please try again.");
+                    return false;
+                }
+            case 3:
+                return messageSender.sendBytes(BinaryCodec.encodeCommand(GameCommands.CHEAT, 0, 0));
+            case 4:
+                messageSender.sendBytes(BinaryCodec.encodeCommand(GameCommands.QUIT, 0, 0));
+                this.isRunning = false;
+                return true;
+            case 5:
+                return messageSender.sendBytes(BinaryCodec.encodeCommand(GameCommands.SYNC, 0, 0));
+            case 7:
+                return messageSender.sendBytes(BinaryCodec.encodeCommand(GameCommands.NEW, 0, 0));
+            default:
+                System.out.println("Invalid command. Please try again.");
+                return false;
+        }
+    }
+
     /**
      * Method to wait for a response from the server.
      * If the server does not respond after a certain number of tries, the client will stop.
+     * @param receiver The method receiving a message, with the protocol in use
      * @return the message received from the server.
      */
-    private String waitForResponse() throws RuntimeException{
+    private <T> T waitForResponse(Supplier<T> receiver) throws RuntimeException{
         boolean isReceived = false;
         int count = 0;
-        String message = null;
+        T message = null;
         while(!isReceived && isRunning){
             if(count != 0){
                 sleep(MESSAGE_DELAY);
             }
             if(count >= MAX_MESSAGE_COUNT){
                 System.out.println("The server is not responding. Please try again later.");
-                messageSender.sendMessage(QUIT_MESSAGE + END_CLIENT_MESSAGE);
+                if(isBinaryMode){
+                    messageSender.sendBytes(BinaryCodec.encodeCommand(GameCommands.QUIT, 0, 0));
+                }else {
+                    messageSender.sendMessage(QUIT_MESSAGE + END_CLIENT_MESSAGE);
+                }
                 this.isRunning = false;
                 return null;
             }
-            message = messageReceiver.receiveMessage();
+            message = receiver.get();
             if(message != null){
                 isReceived = true;
             }else {
@@ -251,6 +473,14 @@ public class MinesweeperClient implements Runnable {
         return Console.readString("Enter your play [x y]: ");
     }
 
+    /**
+     * Method to get the top left cell of the view from the player.
+     * @return the cell
+     */
+    private String getView(){
+        return Console.readString("Enter the top left cell of the view [x y]: ");
+    }
+
     /**
      * Method to close the connection with the server.
      */
@@ -262,6 +492,9 @@ public class MinesweeperClient implements Runnable {
             System.out.println("An error occurred while closing the connection. [" + e.getMessage() + "]");
         }finally {
             this.isRunning = false;
+            if(messageSender != null){
+                messageSender.discard();
+            }
         }
     }
 
@@ -1,14 +1,17 @@
 package client;
+import config.MinesweeperConfig;
 import config.Protocol;
+import messages.BinaryCodec;
 import model.ServerResponseType;
-import utils.Regex;
+import utils.StringUtils;
 
-import java.util.List;
+import java.util.UUID;
 
 /**
  * @author Lawal Benjamin
  * This class is responsible for analyzing messages received from the server.
- * It uses regex to match the message and retrieve groups from it.
+ * The type of the response is chosen by looking once at the end of the message (the trailer),
+ * then the board, if any, is checked in a single pass over the message. No regex is used.
  */
 public class ServerMessageAnalyser {
 
@@ -22,34 +25,205 @@ public class ServerMessageAnalyser {
     public static String[] analyse(String message){
         ServerResponseType command;
         String data;
-        if(message.matches(Protocol.RX_GAME_WON)) {
-            List<String> groups = Regex.getRegexGroups(message, Protocol.RX_GAME_WON);
-            command = ServerResponseType.WIN;
-            data = groups.get(0);
-            return new String[]{command.toString(), data};
-        }
-        else if(message.matches(Protocol.RX_GAME_LOST)) {
-            List<String> groups = Regex.getRegexGroups(message, Protocol.RX_GAME_LOST);
-            command = ServerResponseType.LOSE;
-            data = groups.get(0);
+        if(!message.endsWith(Protocol.END_SERVER_MESSAGE)){
+            return null;
         }
-        else if(message.matches(Protocol.RX_INVALID_RANGE)) {
+        if(message.equals(Protocol.GAME_INVALID_RANGE_MESSAGE)) {
             command = ServerResponseType.INVALID_RANGE;
             data = message.trim();
-        }
-        else if(message.matches(Protocol.RX_BOARD)) {
-            command = ServerResponseType.CONTINUE;
-            data = message.trim();
-        }else if (message.matches(Protocol.RX_GAME_WRONG_COMMAND)){
+        }else if (message.equals(Protocol.GAME_WRONG_COMMAND_MESSAGE)){
             command = ServerResponseType.WRONG_COMMAND;
             data = "WRONG COMMAND";
-        }else if (message.matches(Protocol.RX_GAME_NOT_STARTED)){
+        }else if (message.equals(Protocol.GAME_NOT_STARTED_MESSAGE)){
             command = ServerResponseType.GAME_NOT_STARTED;
             data = message.trim();
+        }else if (message.equals(Protocol.SESSION_NOT_FOUND_MESSAGE)){
+            command = ServerResponseType.SESSION_NOT_FOUND;
+            data = message.trim();
+        }else if(message.startsWith(Protocol.SESSION_MESSAGE + Protocol.SPACE_CHAR)) {
+            command = ServerResponseType.SESSION;
+            data = message.substring(Protocol.SESSION_MESSAGE.length() + Protocol.SPACE_CHAR.length()).trim();
+        }else if(message.endsWith(Protocol.GAME_WON_MESSAGE)) {
+            int boardEnd = message.length() - Protocol.GAME_WON_MESSAGE.length();
+            if(!isBoard(message, boardEnd)){
+                return null;
+            }
+            command = ServerResponseType.WIN;
+            data = message.substring(0, boardEnd);
+        }else if(message.endsWith(Protocol.GAME_LOST_MESSAGE)) {
+            int boardEnd = message.length() - Protocol.GAME_LOST_MESSAGE.length();
+            if(!isBoard(message, boardEnd)){
+                return null;
+            }
+            command = ServerResponseType.LOSE;
+            data = message.substring(0, boardEnd);
+        }else if(message.startsWith(Protocol.DELTA_MESSAGE + Protocol.SPACE_CHAR)) {
+            if(!isDelta(message)){
+                return null;
+            }
+            command = ServerResponseType.DELTA;
+            data = message;
+        }else if(isBoard(message, message.length() - Protocol.RETURN_CHAR.length())) {
+            command = ServerResponseType.CONTINUE;
+            data = message.trim();
         }
         else{
             return null;
         }
         return new String[]{command.toString(), data};
     }
+
+    /**
+     * Method to analyze a message of the binary protocol.
+     * The board, if any, is rendered as the board of the text protocol so that it is displayed the same way.
+     * @param message The message received, starting with its opcode
+     * @return An array of strings containing the analyzed message, as for the text protocol,
+     * or null if the message is not valid.
+     * @see BinaryCodec
+     */
+    public static String[] analyseBinary(byte[] message){
+        if(message == null || message.length == 0){
+            return null;
+        }
+        ServerResponseType command = BinaryCodec.opcodeToResponse(message[0]);
+        if(command == null){
+            return null;
+        }
+        String data;
+        switch (command){
+            case CONTINUE:
+            case WIN:
+            case LOSE:
+                if(!BinaryCodec.isBoardComplete(message)){
+                    return null;
+                }
+                data = StringUtils.boardToStringFormating(BinaryCodec.decodeBoard(message), Protocol.RETURN_CHAR).trim();
+                if(command == ServerResponseType.WIN){
+                    data += Protocol.RETURN_CHAR + Protocol.GAME_WON;
+                }else if(command == ServerResponseType.LOSE){
+                    data += Protocol.RETURN_CHAR + Protocol.GAME_LOST;
+                }
+                break;
+            case SESSION:
+                UUID token = BinaryCodec.decodeToken(message);
+                if(token == null){
+                    return null;
+                }
+                data = token.toString();
+                break;
+            default:
+                if(message.length != 1){
+                    return null;
+                }
+                data = command == ServerResponseType.INVALID_RANGE ? Protocol.GAME_INVALID_RANGE
+                        : command == ServerResponseType.WRONG_COMMAND ? "WRONG COMMAND"
+                        : command == ServerResponseType.SESSION_NOT_FOUND ? Protocol.SESSION_NOT_FOUND
+                        : Protocol.GAME_NOT_STARTED;
+                break;
+        }
+        return new String[]{command.toString(), data};
+    }
+
+    /**
+     * Method to check, in a single pass, that the beginning of the message is a board:
+     * BOARD_SIZE lines of BOARD_SIZE cells, each line ending with a return.
+     * @param message The message received
+     * @param boardEnd The index where the board must end
+     * @return true if the characters before boardEnd are exactly a board, false otherwise.
+     */
+    private static boolean isBoard(String message, int boardEnd){
+        int size = MinesweeperConfig.BOARD_SIZE;
+        int lineLength = size + Protocol.RETURN_CHAR.length();
+        if(boardEnd != size * lineLength){
+            return false;
+        }
+        int position = 0;
+        for(int line = 0; line < size; line++){
+            for(int cell = 0; cell < size; cell++){
+                if(!isCell(message.charAt(position++))){
+                    return false;
+                }
+            }
+            if(!message.startsWith(Protocol.RETURN_CHAR, position)){
+                return false;
+            }
+            position += Protocol.RETURN_CHAR.length();
+        }
+        return true;
+    }
+
+    /**
+     * Method to check, in a single pass, that the message is a delta update:
+     * "DELTA number_of_runs" then a line "x y cells" per run, the message ending with an empty line.
+     * @param message The message received
+     * @return true if the message is a delta update, false otherwise.
+     */
+    private static boolean isDelta(String message){
+        int position = Protocol.DELTA_MESSAGE.length() + Protocol.SPACE_CHAR.length();
+        int runsEnd = skipDigits(message, position);
+        if(runsEnd == position || runsEnd - position > 9 || !message.startsWith(Protocol.RETURN_CHAR, runsEnd)){
+            return false;
+        }
+        int runs = Integer.parseInt(message.substring(position, runsEnd));
+        position = runsEnd + Protocol.RETURN_CHAR.length();
+        for(int run = 0; run < runs; run++){
+            for(int coordinate = 0; coordinate < 2; coordinate++){
+                int end = skipDigits(message, position);
+                if(end == position || !message.startsWith(Protocol.SPACE_CHAR, end)){
+                    return false;
+                }
+                position = end + Protocol.SPACE_CHAR.length();
+            }
+            int cellsStart = position;
+            while(position < message.length() && isCell(message.charAt(position))){
+                position++;
+            }
+            if(position == cellsStart || !message.startsWith(Protocol.RETURN_CHAR, position)){
+                return false;
+            }
+            position += Protocol.RETURN_CHAR.length();
+        }
+        return position + Protocol.RETURN_CHAR.length() == message.length();
+    }
+
+    /**
+     * Method to skip the figures of a number.
+     * @param message The message
+     * @param position The index of the first figure
+     * @return the index following the last figure
+     */
+    private static int skipDigits(String message, int position){
+        while(position < message.length() && message.charAt(position) >= '0' && message.charAt(position) <= '9'){
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Method to check if a character is a valid cell of the board: a figure, an empty cell, a flag or a bomb.
+     * @param c The character
+     * @return true if it is a valid cell, false otherwise.
+     */
+    private static boolean isCell(char c){
+        return (c >= '0' && c <= '9')
+                || c == MinesweeperConfig.EMPTY_CHAR
+                || c == MinesweeperConfig.FLAG_CHAR
+                || c == MinesweeperConfig.BOMB_CHAR;
+    }
+
+    /**
+     * Method to parse the board at the beginning of a message in linear time.
+     * It must only be called on a message analysed as WIN, LOSE or CONTINUE.
+     * @param message The message received
+     * @return the board as a 2D array of characters
+     */
+    public static char[][] parseBoard(String message){
+        int size = MinesweeperConfig.BOARD_SIZE;
+        int lineLength = size + Protocol.RETURN_CHAR.length();
+        char[][] board = new char[size][size];
+        for(int line = 0; line < size; line++){
+            message.getChars(line * lineLength, line * lineLength + size, board[line], 0);
+        }
+        return board;
+    }
 }
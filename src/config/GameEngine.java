@@ -0,0 +1,11 @@
+package config;
+
+/**
+ * @author Lawal Benjamin
+ * This enum represents the implementations of the game that the server can use.
+ */
+public enum GameEngine {
+    CLASSIC,// model.Game, the boards are 2D arrays of characters
+    BITBOARD,// model.BitboardGame, the boards are packed bitsets
+    ENDLESS// model.EndlessGame, a board without bounds generated by chunks, seen through a view of BOARD_SIZE cells
+}
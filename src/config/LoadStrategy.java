@@ -0,0 +1,11 @@
+package config;
+
+/**
+ * @author Lawal Benjamin
+ * This enum represents the ways the players of the load generator choose their moves.
+ * It can be selected at startup with the second argument of the load generator.
+ */
+public enum LoadStrategy {
+    RANDOM,// A hidden cell chosen at random, the games are short and mostly lost
+    SAFE// The moves deduced from the numbers (flags and chords), a random cell only when nothing can be deduced
+}
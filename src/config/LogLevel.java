@@ -0,0 +1,13 @@
+package config;
+
+/**
+ * @author Lawal Benjamin
+ * This enum represents the levels of the log records of the server, from the most to the least detailed.
+ * The records below the configured level are not created at all.
+ */
+public enum LogLevel {
+    DEBUG,// Every message received and every command processed, with its latency
+    INFO,// The connections, the games and the sessions
+    WARN,// The timeouts and the records dropped by the logger
+    ERROR// The errors of the connections and of the server
+}
@@ -9,19 +9,69 @@ public class MinesweeperConfig {
     //Network configuration
     public static int SERVER_PORT = 2351;//2xxx where x is the last 3 digits of my student ID (s2402351)
     public static String SERVER_IP_ADDRESS = "127.0.0.1";
-    public static int MESSAGE_DELAY = 2000;
+    public static int MESSAGE_DELAY = 2000;//Delay of the client between two attempts to receive a response
     public static int MAX_MESSAGE_COUNT = 4;
     public static int CONNECTION_TIMEOUT = 60000;
     public static int SERVER_ACCEPT_TIMEOUT = 60000;
 
+    //Server execution
+    public static ServerMode SERVER_MODE = ServerMode.PLATFORM;
+    public static int EVENT_LOOP_THREADS = Runtime.getRuntime().availableProcessors();
+    public static int BACKEND_POOL_SIZE = 200;
+
+    //Session store
+    public static boolean SESSION_STORE_ENABLED = true;//The games in progress are saved to survive a restart of the server
+    public static String SESSION_STORE_FILE = "sessions.store";
+    public static int SESSION_STORE_CAPACITY = 1024;//Maximum number of games saved at the same time
+    public static int SESSION_STORE_FLUSH_INTERVAL = 200;//Delay between two writes of the store to disk, in milliseconds
+
+    //Session resume
+    public static int SESSION_RESUME_CAPACITY = 10000;//Maximum number of games kept for the clients whose connection dropped
+    public static long SESSION_RESUME_TTL = 600000;//Time a detached game is kept, in milliseconds
+    public static int SESSION_RESUME_SWEEP_INTERVAL = 1000;//Delay between two evictions of the expired games, in milliseconds
+    public static boolean SESSION_RESUME = true;//The client asks for its session token, to resume the game from a new connection
+
+    //Protocol
+    public static boolean DELTA_UPDATES = false;//The client asks the server to only send the cells changed by a move
+    public static boolean BINARY_PROTOCOL = false;//The client switches to the binary protocol, the delta updates are not used
+    public static int BATCH_MAX_MOVES = 256;//Maximum number of moves of a batch, a longer batch is a wrong command
+
+    //Metrics
+    public static boolean METRICS_ENABLED = true;//The metrics are registered to JMX and served on the metrics port
+    public static int METRICS_PORT = 2352;//Local port of the plain text metrics
+
+    //Logging
+    public static LogLevel LOG_LEVEL = LogLevel.INFO;
+    public static String LOG_FILE = "";//File receiving the log records of the server, the console if empty
+    public static int LOG_BUFFER_SIZE = 8192;//Records waiting to be written, rounded up to a power of two
+    public static int LOG_SAMPLE_RATE = 10;//Once the buffer is 3/4 full, only 1 DEBUG or INFO record out of LOG_SAMPLE_RATE is kept
+    public static int LOG_FLUSH_INTERVAL = 20;//Maximum delay before a record is written, in milliseconds
+
+    //Load generator
+    public static int LOAD_CONNECTIONS = 1000;//Number of players connected at the same time
+    public static LoadStrategy LOAD_STRATEGY = LoadStrategy.SAFE;
+    public static int LOAD_GAMES_PER_CONNECTION = 10;//Games played by each player, on the same connection
+    public static int LOAD_RAMP_UP = 10000;//Time to open all the connections, in milliseconds
+    public static int LOAD_THINK_TIME = 0;//Delay of a player between a response and its next move, in milliseconds
+    public static int LOAD_REPORT_INTERVAL = 5000;//Delay between two reports of the load generator, in milliseconds
+
     //Buffer size
     public static int DEFAULT_BUFFER = 1024;
+    public static int MAX_FRAME_SIZE = 1 << 20;//Largest message accepted, a connection sending a larger one is closed
+    public static int WRITE_BUFFER_SIZE = 8192;//Size of the pooled direct buffers used to send the messages
+    public static int WRITE_BUFFER_POOL_SIZE = 1024;//Maximum number of free buffers kept in the pool
 
 
     //Game configuration
+    public static GameEngine GAME_ENGINE = GameEngine.CLASSIC;
     public static int BOARD_SIZE = 7;
     public static int NUMBER_OF_MINES = 7;
     public static char FLAG_CHAR = 'F';
     public static char BOMB_CHAR = 'B';
     public static char EMPTY_CHAR = '#';
+
+    //Endless game configuration
+    public static int ENDLESS_CHUNK_SIZE = 32;
+    public static int ENDLESS_MINES_PER_CHUNK = 160;
+    public static int ENDLESS_MAX_REVEAL = 4096;//Maximum number of cells revealed by a single move
 }
@@ -17,7 +17,15 @@ public class Protocol {
     public static String TRY_MESSAGE = "TRY";
     public static String FLAG_MESSAGE = "FLAG";
     public static String CHEAT_MESSAGE = "CHEAT";
+    public static String CHORD_MESSAGE = "CHORD";//Reveal the hidden cells around a number that has all its flags
     public static String QUIT_MESSAGE = "QUIT";
+    public static String DELTA_MESSAGE = "DELTA";//Switch to delta updates, also the header of a delta update
+    public static String SYNC_MESSAGE = "SYNC";//Ask for the whole board
+    public static String VIEW_MESSAGE = "VIEW";//Move the view of an endless board, the coordinates can be negative
+    public static String BINARY_MESSAGE = "BINARY";//Switch to the binary protocol, also the answer of the server
+    public static String SESSION_MESSAGE = "SESSION";//Ask for the session token, also the header of the answer
+    public static String NEW_MESSAGE = "NEW";//Start another game on the same connection
+    public static String RESUME_MESSAGE = "RESUME";//Resume the game of a session token from a new connection
 
     //Server message
     public static String END_SERVER_MESSAGE = COMBINED_RETURN_CHAR;
@@ -26,12 +34,14 @@ public class Protocol {
     public static String GAME_INVALID_RANGE = "INVALID RANGE";
     public static String GAME_WRONG_COMMAND = "WRONG";
     public static String GAME_LOST = "GAME LOST";
+    public static String SESSION_NOT_FOUND = "SESSION NOT FOUND";
 
     public static String GAME_WON_MESSAGE = GAME_WON + END_SERVER_MESSAGE;
     public static String GAME_LOST_MESSAGE = GAME_LOST + END_SERVER_MESSAGE;
     public static String GAME_INVALID_RANGE_MESSAGE = GAME_INVALID_RANGE + END_SERVER_MESSAGE;
     public static String GAME_WRONG_COMMAND_MESSAGE = GAME_WRONG_COMMAND + END_SERVER_MESSAGE;
     public static final String GAME_NOT_STARTED_MESSAGE = GAME_NOT_STARTED + END_SERVER_MESSAGE;
+    public static String SESSION_NOT_FOUND_MESSAGE = SESSION_NOT_FOUND + END_SERVER_MESSAGE;
 
     //Board
     public static String BOARD_LINE_CELL =
@@ -0,0 +1,13 @@
+package config;
+
+/**
+ * @author Lawal Benjamin
+ * This enum represents the different ways the server can run the client sessions.
+ * It can be selected at startup with the first argument of the server.
+ */
+public enum ServerMode {
+    PLATFORM,// One platform thread blocking on each connection
+    POOL,// A bounded pool of platform threads, the extra connections wait for a free thread
+    VIRTUAL,// One virtual thread blocking on each connection (Java 21+)
+    NIO// All the connections multiplexed on a few event loop threads
+}
@@ -0,0 +1,228 @@
+package loadtest;
+
+import client.ServerMessageAnalyser;
+import config.MinesweeperConfig;
+import config.Protocol;
+import messages.BinaryCodec;
+import messages.MessageReceiver;
+import messages.MessageSender;
+import model.GameCommands;
+import model.ServerResponseType;
+import server.ClientCommand;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents a player of the load generator. It plays its games without a console,
+ * with the same protocol classes as the client: the moves are chosen by a strategy from the last board received,
+ * the next game is started on the same connection with NEW, and the connection is closed with QUIT.
+ * The time between each command and its response is recorded in the statistics.
+ * @see LoadGenerator
+ */
+public class LoadClient implements Runnable {
+    private final PlayStrategy strategy;
+    private final LoadStatistics statistics;
+    private final int games;
+    private final int thinkTime;
+    private final ClientCommand move;
+    private MessageSender messageSender;
+    private MessageReceiver messageReceiver;
+    private boolean isBinaryMode;
+    private char[][] board;//The last board received
+
+    public LoadClient(PlayStrategy strategy, LoadStatistics statistics, int games, int thinkTime) {
+        this.strategy = strategy;
+        this.statistics = statistics;
+        this.games = games;
+        this.thinkTime = thinkTime;
+        this.move = new ClientCommand();
+    }
+
+    @Override
+    public void run() {
+        Socket socket;
+        try {
+            socket = new Socket(MinesweeperConfig.SERVER_IP_ADDRESS, MinesweeperConfig.SERVER_PORT);
+            socket.setSoTimeout(MinesweeperConfig.CONNECTION_TIMEOUT);
+            socket.setTcpNoDelay(true);
+        } catch (IOException e) {
+            statistics.recordConnectionError();
+            return;
+        }
+        statistics.recordConnection();
+        try {
+            messageSender = new MessageSender(socket);
+            messageReceiver = new MessageReceiver("LOAD", socket, MinesweeperConfig.DEFAULT_BUFFER, Protocol.END_SERVER_MESSAGE);
+            if(MinesweeperConfig.BINARY_PROTOCOL && !switchToBinary()){
+                return;
+            }
+            for(int game = 0; game < games; game++){
+                if(game > 0 && !newGame()){
+                    return;
+                }
+                if(!playGame()){
+                    return;
+                }
+            }
+            send(GameCommands.QUIT, 0, 0);
+        } catch (RuntimeException e) {
+            //The connection was lost, the error of the command is already recorded
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("[LOAD] An error occurred while closing the connection. [" + e.getMessage() + "]");
+            }
+        }
+    }
+
+    /**
+     * Method to play a game until it is won or lost.
+     * A game that does not end after many moves, because the strategy repeats a move, is abandoned.
+     * @return true if the connection can be used for another game, false otherwise.
+     */
+    private boolean playGame(){
+        int size = MinesweeperConfig.BOARD_SIZE;
+        board = new char[size][size];
+        for(char[] line : board){
+            Arrays.fill(line, MinesweeperConfig.EMPTY_CHAR);
+        }
+        for(int moves = 0; moves < 4 * size * size; moves++){
+            think();
+            strategy.nextMove(board, move);
+            ServerResponseType response = request(move.getCommand(), move.getX(), move.getY());
+            if(response == null){
+                return false;
+            }
+            switch (response){
+                case CONTINUE:
+                    break;
+                case WIN:
+                case LOSE:
+                    statistics.recordGame(response == ServerResponseType.WIN);
+                    return true;
+                default:
+                    statistics.recordError(move.getCommand());
+                    return true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to start another game on the connection.
+     * @return true if the server answered with the new board, false otherwise.
+     */
+    private boolean newGame(){
+        think();
+        ServerResponseType response = request(GameCommands.NEW, 0, 0);
+        if(response != ServerResponseType.CONTINUE){
+            if(response != null){
+                statistics.recordError(GameCommands.NEW);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method to send a command, wait for its response and record its latency.
+     * @param command The command (TRY, FLAG, CHORD or NEW)
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @return the type of the response, or null if there is none (the error is recorded).
+     */
+    private ServerResponseType request(GameCommands command, int x, int y){
+        long start = System.nanoTime();
+        ServerResponseType response = send(command, x, y) ? receive() : null;
+        if(response == null){
+            statistics.recordError(command);
+            return null;
+        }
+        statistics.recordResponse(command, System.nanoTime() - start);
+        return response;
+    }
+
+    private boolean send(GameCommands command, int x, int y){
+        if(isBinaryMode){
+            return messageSender.sendBytes(BinaryCodec.encodeCommand(command, x, y));
+        }
+        String keyword;
+        switch (command){
+            case TRY:
+                keyword = Protocol.TRY_MESSAGE;
+                break;
+            case FLAG:
+                keyword = Protocol.FLAG_MESSAGE;
+                break;
+            case CHORD:
+                keyword = Protocol.CHORD_MESSAGE;
+                break;
+            case NEW:
+                return messageSender.sendMessage(Protocol.NEW_MESSAGE + Protocol.END_CLIENT_MESSAGE);
+            default:
+                return messageSender.sendMessage(Protocol.QUIT_MESSAGE + Protocol.END_CLIENT_MESSAGE);
+        }
+        return messageSender.sendMessage(keyword + Protocol.SPACE_CHAR + x + Protocol.SPACE_CHAR + y + Protocol.END_CLIENT_MESSAGE);
+    }
+
+    /**
+     * Method to receive a response, keeping its board if it is a board to play on.
+     * @return the type of the response, or null on timeout or if the response can't be analysed.
+     */
+    private ServerResponseType receive(){
+        if(isBinaryMode){
+            byte[] frame = messageReceiver.receiveBinaryMessage();
+            if(frame == null || frame.length == 0){
+                return null;
+            }
+            ServerResponseType response = BinaryCodec.opcodeToResponse(frame[0]);
+            if(response == ServerResponseType.CONTINUE){
+                if(!BinaryCodec.isBoardComplete(frame)){
+                    return null;
+                }
+                board = BinaryCodec.decodeBoard(frame);
+            }
+            return response;
+        }
+        String message = messageReceiver.receiveMessage();
+        String[] analysedResponse = message == null ? null : ServerMessageAnalyser.analyse(message);
+        if(analysedResponse == null){
+            return null;
+        }
+        ServerResponseType response = ServerResponseType.valueOf(analysedResponse[0]);
+        if(response == ServerResponseType.CONTINUE){
+            board = ServerMessageAnalyser.parseBoard(analysedResponse[1]);
+        }
+        return response;
+    }
+
+    /**
+     * Method to switch the connection to the binary protocol.
+     * @return true if the server accepted, false otherwise.
+     */
+    private boolean switchToBinary(){
+        messageSender.sendMessage(Protocol.BINARY_MESSAGE + Protocol.END_CLIENT_MESSAGE);
+        if(!(Protocol.BINARY_MESSAGE + Protocol.END_SERVER_MESSAGE).equals(messageReceiver.receiveMessage())){
+            statistics.recordConnectionError();
+            return false;
+        }
+        messageReceiver.switchToBinary();
+        isBinaryMode = true;
+        return true;
+    }
+
+    private void think(){
+        if(thinkTime <= 0){
+            return;
+        }
+        try {
+            Thread.sleep(thinkTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
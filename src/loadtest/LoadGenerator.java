@@ -0,0 +1,135 @@
+package loadtest;
+
+import config.LoadStrategy;
+import config.MinesweeperConfig;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Lawal Benjamin
+ * This class simulates many players connected to the server at the same time, to measure its capacity.
+ * The connections are opened evenly over the ramp-up time, each player plays its games on its own thread
+ * (a virtual thread when the JVM has them), and the throughput is printed at regular intervals.
+ * At the end, the throughput, the errors and the latency percentiles of each command are printed.
+ * Arguments, all optional : [connections] [RANDOM|SAFE] [games per connection] [ramp-up ms] [think time ms]
+ * @see LoadClient
+ * @see LoadStatistics
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) {
+        try {
+            if(args.length > 0){
+                MinesweeperConfig.LOAD_CONNECTIONS = Integer.parseInt(args[0]);
+            }
+            if(args.length > 1){
+                MinesweeperConfig.LOAD_STRATEGY = LoadStrategy.valueOf(args[1].toUpperCase());
+            }
+            if(args.length > 2){
+                MinesweeperConfig.LOAD_GAMES_PER_CONNECTION = Integer.parseInt(args[2]);
+            }
+            if(args.length > 3){
+                MinesweeperConfig.LOAD_RAMP_UP = Integer.parseInt(args[3]);
+            }
+            if(args.length > 4){
+                MinesweeperConfig.LOAD_THINK_TIME = Integer.parseInt(args[4]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Usage : LoadGenerator [connections] [RANDOM|SAFE] [games per connection] [ramp-up ms] [think time ms]");
+            return;
+        }
+        new LoadGenerator().run();
+    }
+
+    /**
+     * Method to run the players and print the reports, until every player is done.
+     */
+    public void run(){
+        int connections = MinesweeperConfig.LOAD_CONNECTIONS;
+        PlayStrategy strategy = createStrategy(MinesweeperConfig.LOAD_STRATEGY);
+        LoadStatistics statistics = new LoadStatistics();
+        CountDownLatch done = new CountDownLatch(connections);
+        AtomicInteger activePlayers = new AtomicInteger();
+        Executor executor = createExecutor();
+        System.out.printf("[LOAD] %d players, strategy %s, %d games each, ramp-up %d ms, think time %d ms, %s protocol\n",
+                connections, MinesweeperConfig.LOAD_STRATEGY, MinesweeperConfig.LOAD_GAMES_PER_CONNECTION,
+                MinesweeperConfig.LOAD_RAMP_UP, MinesweeperConfig.LOAD_THINK_TIME,
+                MinesweeperConfig.BINARY_PROTOCOL ? "binary" : "text");
+        startReporter(statistics, activePlayers, done);
+
+        long start = System.nanoTime();
+        long rampUp = TimeUnit.MILLISECONDS.toNanos(MinesweeperConfig.LOAD_RAMP_UP);
+        for(int i = 0; i < connections; i++){
+            //The players are started at even intervals over the ramp-up
+            long delay = start + rampUp * i / connections - System.nanoTime();
+            if(delay > 0){
+                LockSupport.parkNanos(delay);
+            }
+            LoadClient player = new LoadClient(strategy, statistics,
+                    MinesweeperConfig.LOAD_GAMES_PER_CONNECTION, MinesweeperConfig.LOAD_THINK_TIME);
+            activePlayers.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    player.run();
+                } finally {
+                    activePlayers.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(executor instanceof ExecutorService){
+            ((ExecutorService) executor).shutdown();
+        }
+        statistics.report();
+    }
+
+    /**
+     * Method to start the thread printing the throughput at regular intervals, until every player is done.
+     */
+    private static void startReporter(LoadStatistics statistics, AtomicInteger activePlayers, CountDownLatch done){
+        Thread reporter = new Thread(() -> {
+            try {
+                while(!done.await(MinesweeperConfig.LOAD_REPORT_INTERVAL, TimeUnit.MILLISECONDS)){
+                    statistics.reportInterval(activePlayers.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "load-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+    }
+
+    private static PlayStrategy createStrategy(LoadStrategy strategy){
+        switch (strategy){
+            case RANDOM:
+                return new RandomStrategy();
+            default:
+                return new SafeStrategy();
+        }
+    }
+
+    /**
+     * Method to create the executor running the players.
+     * The virtual thread executor is looked up by reflection, as for the server, so that it still runs on older JVMs.
+     * @return the executor
+     */
+    private static Executor createExecutor(){
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return command -> new Thread(command).start();
+        }
+    }
+}
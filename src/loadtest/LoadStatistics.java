@@ -0,0 +1,123 @@
+package loadtest;
+
+import model.GameCommands;
+import utils.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Lawal Benjamin
+ * This class gathers the results of all the players of the load generator:
+ * the latency of each command, from the request sent to the response received, the errors of each command,
+ * the connections that failed and the games won and lost.
+ * It is updated by the players without locking.
+ * @see LatencyHistogram
+ */
+public class LoadStatistics {
+    private static final GameCommands[] COMMANDS = {GameCommands.TRY, GameCommands.FLAG, GameCommands.CHORD, GameCommands.NEW};
+
+    private final Map<GameCommands, LatencyHistogram> latencies;//Filled once, then only read
+    private final Map<GameCommands, LongAdder> errors;
+    private final LongAdder connections;
+    private final LongAdder connectionErrors;
+    private final LongAdder gamesWon;
+    private final LongAdder gamesLost;
+    private final long start;
+    private long lastReport;
+    private long lastResponses;
+
+    public LoadStatistics() {
+        this.latencies = new EnumMap<>(GameCommands.class);
+        this.errors = new EnumMap<>(GameCommands.class);
+        for(GameCommands command : COMMANDS){
+            latencies.put(command, new LatencyHistogram());
+            errors.put(command, new LongAdder());
+        }
+        this.connections = new LongAdder();
+        this.connectionErrors = new LongAdder();
+        this.gamesWon = new LongAdder();
+        this.gamesLost = new LongAdder();
+        this.start = System.nanoTime();
+        this.lastReport = start;
+    }
+
+    /**
+     * Method to record the response of a command.
+     * @param command The command sent (TRY, FLAG, CHORD or NEW)
+     * @param latency The time between the command sent and its response, in nanoseconds
+     */
+    public void recordResponse(GameCommands command, long latency){
+        latencies.get(command).record(latency);
+    }
+
+    /**
+     * Method to record a command that was not answered, or answered with an error.
+     * @param command The command sent (TRY, FLAG, CHORD or NEW)
+     */
+    public void recordError(GameCommands command){
+        errors.get(command).increment();
+    }
+
+    public void recordConnection(){
+        connections.increment();
+    }
+
+    public void recordConnectionError(){
+        connectionErrors.increment();
+    }
+
+    public void recordGame(boolean isWon){
+        (isWon ? gamesWon : gamesLost).increment();
+    }
+
+    /**
+     * Method to print the throughput since the last report and the progress of the games.
+     * It is called by a single thread.
+     * @param activePlayers The number of players still playing
+     */
+    public void reportInterval(int activePlayers){
+        long now = System.nanoTime();
+        long responses = getResponseCount();
+        System.out.printf("[LOAD] Players : %d | Responses/s : %.0f | Games won : %d | lost : %d | Errors : %d\n",
+                activePlayers, (responses - lastResponses) * 1e9 / Math.max(1, now - lastReport),
+                gamesWon.sum(), gamesLost.sum(), getErrorCount());
+        lastReport = now;
+        lastResponses = responses;
+    }
+
+    /**
+     * Method to print the final report: the throughput, the errors and the latency percentiles of each command.
+     */
+    public void report(){
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[LOAD] Duration : %.1f s | Connections : %d | Connection errors : %d | Games won : %d | lost : %d\n",
+                seconds, connections.sum(), connectionErrors.sum(), gamesWon.sum(), gamesLost.sum());
+        System.out.printf("[LOAD] %-6s %10s %8s %10s %10s %10s %10s %10s %10s %10s\n",
+                "CMD", "COUNT", "ERRORS", "PER SEC", "MEAN(us)", "P50(us)", "P90(us)", "P99(us)", "P99.9(us)", "MAX(us)");
+        for(GameCommands command : COMMANDS){
+            LatencyHistogram histogram = latencies.get(command);
+            System.out.printf("[LOAD] %-6s %10d %8d %10.0f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f\n",
+                    command, histogram.getCount(), errors.get(command).sum(), histogram.getCount() / seconds,
+                    histogram.getMean() / 1000, histogram.getPercentile(50) / 1000.0, histogram.getPercentile(90) / 1000.0,
+                    histogram.getPercentile(99) / 1000.0, histogram.getPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0);
+        }
+    }
+
+    private long getResponseCount(){
+        long count = 0;
+        for(LatencyHistogram histogram : latencies.values()){
+            count += histogram.getCount();
+        }
+        return count;
+    }
+
+    private long getErrorCount(){
+        long count = connectionErrors.sum();
+        for(LongAdder adder : errors.values()){
+            count += adder.sum();
+        }
+        return count;
+    }
+}
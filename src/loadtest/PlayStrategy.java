@@ -0,0 +1,18 @@
+package loadtest;
+
+import server.ClientCommand;
+
+/**
+ * @author Lawal Benjamin
+ * This interface represents the way a player of the load generator chooses its next move.
+ * A strategy is shared by all the players, so it must not keep the state of a game.
+ * @see config.LoadStrategy
+ */
+public interface PlayStrategy {
+    /**
+     * Method to choose the next move from the board as the player sees it.
+     * @param board The board, the hidden cells are EMPTY_CHAR
+     * @param move The move to fill with the command (TRY, FLAG or CHORD) and the coordinates
+     */
+    void nextMove(char[][] board, ClientCommand move);
+}
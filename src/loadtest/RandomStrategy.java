@@ -0,0 +1,38 @@
+package loadtest;
+
+import config.MinesweeperConfig;
+import model.GameCommands;
+import server.ClientCommand;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Lawal Benjamin
+ * This class plays a hidden cell chosen at random. It never flags, so its games are short and mostly lost.
+ */
+public class RandomStrategy implements PlayStrategy {
+
+    @Override
+    public void nextMove(char[][] board, ClientCommand move) {
+        int size = board.length;
+        int hidden = 0;
+        for(char[] line : board){
+            for(char cell : line){
+                if(cell == MinesweeperConfig.EMPTY_CHAR){
+                    hidden++;
+                }
+            }
+        }
+        //The n-th hidden cell, in the order of the board
+        int target = hidden == 0 ? 0 : ThreadLocalRandom.current().nextInt(hidden);
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                if(board[x][y] == MinesweeperConfig.EMPTY_CHAR && target-- == 0){
+                    move.set(GameCommands.TRY, x, y);
+                    return;
+                }
+            }
+        }
+        move.set(GameCommands.TRY, 0, 0);
+    }
+}
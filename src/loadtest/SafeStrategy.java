@@ -0,0 +1,67 @@
+package loadtest;
+
+import config.MinesweeperConfig;
+import model.GameCommands;
+import server.ClientCommand;
+
+/**
+ * @author Lawal Benjamin
+ * This class plays the moves that the numbers of the board prove safe:
+ * a number with as many hidden cells and flags around it as its value has only mines around it, which are flagged,
+ * and a number with all its flags around it is chorded, which reveals the other cells around it.
+ * A hidden cell is chosen at random only when nothing can be deduced, as at the start of a game.
+ */
+public class SafeStrategy implements PlayStrategy {
+    private final RandomStrategy randomStrategy = new RandomStrategy();
+
+    @Override
+    public void nextMove(char[][] board, ClientCommand move) {
+        int size = board.length;
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                char cell = board[x][y];
+                if(cell < '1' || cell > '8'){
+                    continue;
+                }
+                int mines = cell - '0';
+                int hidden = countAround(board, x, y, MinesweeperConfig.EMPTY_CHAR);
+                if(hidden == 0){
+                    continue;
+                }
+                int flags = countAround(board, x, y, MinesweeperConfig.FLAG_CHAR);
+                if(flags == mines){
+                    move.set(GameCommands.CHORD, x, y);
+                    return;
+                }
+                if(flags + hidden == mines){
+                    flagHiddenAround(board, x, y, move);
+                    return;
+                }
+            }
+        }
+        randomStrategy.nextMove(board, move);
+    }
+
+    private static int countAround(char[][] board, int x, int y, char c){
+        int count = 0;
+        for(int i = Math.max(0, x - 1); i <= Math.min(board.length - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(board.length - 1, y + 1); j++){
+                if(board[i][j] == c){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void flagHiddenAround(char[][] board, int x, int y, ClientCommand move){
+        for(int i = Math.max(0, x - 1); i <= Math.min(board.length - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(board.length - 1, y + 1); j++){
+                if(board[i][j] == MinesweeperConfig.EMPTY_CHAR){
+                    move.set(GameCommands.FLAG, i, j);
+                    return;
+                }
+            }
+        }
+    }
+}
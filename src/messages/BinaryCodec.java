@@ -0,0 +1,344 @@
+package messages;
+
+import config.MinesweeperConfig;
+import model.GameCommands;
+import model.ServerResponseType;
+
+import java.util.UUID;
+
+/**
+ * @author Lawal Benjamin
+ * This class is responsible for encoding and decoding the messages of the binary protocol.
+ * The binary protocol is chosen by the client with the BINARY handshake of the text protocol.
+ * A binary message is a 4 bytes length (big endian) followed by the opcode (1 byte) and the payload:
+ * - client : TRY, FLAG, CHORD and VIEW carry the coordinates x and y (4 bytes each), RESUME carries the session token (16 bytes),
+ * BATCH carries several moves, each one being the opcode of a TRY, a FLAG or a CHORD and its coordinates (9 bytes),
+ * CHEAT, QUIT, SYNC, SESSION and NEW carry nothing.
+ * - server : the boards carry their size (4 bytes) and their cells packed on 4 bits, two cells per byte,
+ * the first cell in the high bits. The session token carries the token (16 bytes). The other responses carry nothing.
+ * A cell is coded 0 to 8 for a figure, then hidden, flag and bomb.
+ */
+public class BinaryCodec {
+    public static final int LENGTH_SIZE = 4;
+    public static final int BOARD_HEADER_SIZE = LENGTH_SIZE + 1 + 4;
+    public static final int MOVE_SIZE = 1 + 4 + 4;//A move of a batch: the opcode and the coordinates
+
+    //Client opcodes
+    public static final byte OP_TRY = 1;
+    public static final byte OP_FLAG = 2;
+    public static final byte OP_CHEAT = 3;
+    public static final byte OP_QUIT = 4;
+    public static final byte OP_SYNC = 5;
+    public static final byte OP_VIEW = 6;
+    public static final byte OP_SESSION = 7;
+    public static final byte OP_RESUME = 8;
+    public static final byte OP_NEW = 9;
+    public static final byte OP_BATCH = 10;
+    public static final byte OP_CHORD = 11;
+
+    //Server opcodes
+    public static final byte OP_CONTINUE = 0x10;
+    public static final byte OP_WIN = 0x11;
+    public static final byte OP_LOSE = 0x12;
+    public static final byte OP_INVALID_RANGE = 0x13;
+    public static final byte OP_WRONG_COMMAND = 0x14;
+    public static final byte OP_GAME_NOT_STARTED = 0x15;
+    public static final byte OP_SESSION_TOKEN = 0x16;
+    public static final byte OP_SESSION_NOT_FOUND = 0x17;
+
+    //Cell codes
+    private static final int CELL_HIDDEN = 9;
+    private static final int CELL_FLAG = 10;
+    private static final int CELL_BOMB = 11;
+
+    /**
+     * Method to encode a command of the client.
+     * @param command The command
+     * @param x the x coordinate, only sent with TRY, FLAG, CHORD and VIEW
+     * @param y the y coordinate, only sent with TRY, FLAG, CHORD and VIEW
+     * @return the binary message
+     */
+    public static byte[] encodeCommand(GameCommands command, int x, int y){
+        byte opcode = commandToOpcode(command);
+        boolean isMove = opcode == OP_TRY || opcode == OP_FLAG || opcode == OP_CHORD || opcode == OP_VIEW;
+        byte[] message = new byte[LENGTH_SIZE + 1 + (isMove ? 8 : 0)];
+        int position = writeInt(message, 0, message.length - LENGTH_SIZE);
+        message[position++] = opcode;
+        if(isMove){
+            position = writeInt(message, position, x);
+            writeInt(message, position, y);
+        }
+        return message;
+    }
+
+    /**
+     * Method to encode a batch of moves, played in order by the server with a single response.
+     * @param commands The commands of the moves, TRY, FLAG or CHORD
+     * @param xs The x coordinates of the moves
+     * @param ys The y coordinates of the moves
+     * @param count The number of moves
+     * @return the binary message
+     */
+    public static byte[] encodeBatch(GameCommands[] commands, int[] xs, int[] ys, int count){
+        byte[] message = new byte[LENGTH_SIZE + 1 + count * MOVE_SIZE];
+        int position = writeInt(message, 0, message.length - LENGTH_SIZE);
+        message[position++] = OP_BATCH;
+        for(int i = 0; i < count; i++){
+            message[position++] = commandToOpcode(commands[i]);
+            position = writeInt(message, position, xs[i]);
+            position = writeInt(message, position, ys[i]);
+        }
+        return message;
+    }
+
+    /**
+     * Method to encode a command carrying a session token: RESUME.
+     * @param command The command
+     * @param token The session token
+     * @return the binary message
+     */
+    public static byte[] encodeCommand(GameCommands command, UUID token){
+        return encodeToken(commandToOpcode(command), token);
+    }
+
+    /**
+     * Method to encode the session token sent to the client.
+     * @param token The session token
+     * @return the binary message
+     */
+    public static byte[] encodeSession(UUID token){
+        return encodeToken(OP_SESSION_TOKEN, token);
+    }
+
+    /**
+     * Method to read the session token of a message.
+     * @param frame The frame of the message, starting with the opcode
+     * @return the session token, or null if the frame does not have the length of a token.
+     */
+    public static UUID decodeToken(byte[] frame){
+        if(frame.length != 1 + 16){
+            return null;
+        }
+        return new UUID(readLong(frame, 1), readLong(frame, 9));
+    }
+
+    private static byte[] encodeToken(byte opcode, UUID token){
+        byte[] message = new byte[LENGTH_SIZE + 1 + 16];
+        int position = writeInt(message, 0, 1 + 16);
+        message[position++] = opcode;
+        position = writeInt(message, position, (int) (token.getMostSignificantBits() >>> 32));
+        position = writeInt(message, position, (int) token.getMostSignificantBits());
+        position = writeInt(message, position, (int) (token.getLeastSignificantBits() >>> 32));
+        writeInt(message, position, (int) token.getLeastSignificantBits());
+        return message;
+    }
+
+    /**
+     * Method to encode a response without board.
+     * @param type The type of the response
+     * @return the binary message
+     */
+    public static byte[] encodeStatus(ServerResponseType type){
+        byte[] message = new byte[LENGTH_SIZE + 1];
+        writeInt(message, 0, 1);
+        message[LENGTH_SIZE] = responseToOpcode(type);
+        return message;
+    }
+
+    /**
+     * Method to encode a response with a board: the size of the board then the cells packed on 4 bits.
+     * @param type The type of the response (CONTINUE, WIN or LOSE)
+     * @param board The board to send
+     * @return the binary message
+     */
+    public static byte[] encodeBoard(ServerResponseType type, char[][] board){
+        BoardImage image = new BoardImage(board.length);
+        image.setBoard(board);
+        byte[] message = new byte[BOARD_HEADER_SIZE + image.packed().length];
+        writeBoardHeader(message, type, board.length);
+        System.arraycopy(image.packed(), 0, message, BOARD_HEADER_SIZE, image.packed().length);
+        return message;
+    }
+
+    /**
+     * Method to write the header of a response with a board: the length, the opcode and the size of the board.
+     * The header must be followed by the packed image of the board.
+     * @param destination The array receiving the header, it must have room for BOARD_HEADER_SIZE bytes
+     * @param type The type of the response (CONTINUE, WIN or LOSE)
+     * @param size The size of the board
+     * @return the length of the header
+     * @see BoardImage#packed()
+     */
+    public static int writeBoardHeader(byte[] destination, ServerResponseType type, int size){
+        int position = writeInt(destination, 0, 1 + 4 + (size * size + 1) / 2);
+        destination[position++] = responseToOpcode(type);
+        return writeInt(destination, position, size);
+    }
+
+    /**
+     * Method to decode the board of a response.
+     * @param frame The frame of the response, starting with the opcode
+     * @return the board as a 2D array of characters
+     */
+    public static char[][] decodeBoard(byte[] frame){
+        int size = readInt(frame, 1);
+        char[][] board = new char[size][size];
+        for(int cell = 0; cell < size * size; cell++){
+            int packed = frame[5 + cell / 2];
+            int code = (cell & 1) == 0 ? (packed >> 4) & 0x0F : packed & 0x0F;
+            board[cell / size][cell % size] = codeToCell(code);
+        }
+        return board;
+    }
+
+    /**
+     * Method to check that the frame of a response with a board has the length announced by its size.
+     * @param frame The frame of the response, starting with the opcode
+     * @return true if the board is complete, false otherwise.
+     */
+    public static boolean isBoardComplete(byte[] frame){
+        if(frame.length < 5){
+            return false;
+        }
+        long size = readInt(frame, 1);
+        return size >= 0 && frame.length == 5 + (size * size + 1) / 2;
+    }
+
+    /**
+     * Method to get the type of a response from its opcode.
+     * @param opcode The opcode
+     * @return the type of the response or null if the opcode is unknown
+     */
+    public static ServerResponseType opcodeToResponse(byte opcode){
+        switch (opcode){
+            case OP_CONTINUE: return ServerResponseType.CONTINUE;
+            case OP_WIN: return ServerResponseType.WIN;
+            case OP_LOSE: return ServerResponseType.LOSE;
+            case OP_INVALID_RANGE: return ServerResponseType.INVALID_RANGE;
+            case OP_WRONG_COMMAND: return ServerResponseType.WRONG_COMMAND;
+            case OP_GAME_NOT_STARTED: return ServerResponseType.GAME_NOT_STARTED;
+            case OP_SESSION_TOKEN: return ServerResponseType.SESSION;
+            case OP_SESSION_NOT_FOUND: return ServerResponseType.SESSION_NOT_FOUND;
+            default: return null;
+        }
+    }
+
+    /**
+     * Method to get the command of the client from its opcode.
+     * @param opcode The opcode
+     * @return the command, WRONG if the opcode is unknown
+     */
+    public static GameCommands opcodeToCommand(byte opcode){
+        switch (opcode){
+            case OP_TRY: return GameCommands.TRY;
+            case OP_FLAG: return GameCommands.FLAG;
+            case OP_CHEAT: return GameCommands.CHEAT;
+            case OP_QUIT: return GameCommands.QUIT;
+            case OP_SYNC: return GameCommands.SYNC;
+            case OP_VIEW: return GameCommands.VIEW;
+            case OP_SESSION: return GameCommands.SESSION;
+            case OP_RESUME: return GameCommands.RESUME;
+            case OP_NEW: return GameCommands.NEW;
+            case OP_BATCH: return GameCommands.BATCH;
+            case OP_CHORD: return GameCommands.CHORD;
+            default: return GameCommands.WRONG;
+        }
+    }
+
+    private static byte commandToOpcode(GameCommands command){
+        switch (command){
+            case TRY: return OP_TRY;
+            case FLAG: return OP_FLAG;
+            case CHEAT: return OP_CHEAT;
+            case QUIT: return OP_QUIT;
+            case SYNC: return OP_SYNC;
+            case VIEW: return OP_VIEW;
+            case SESSION: return OP_SESSION;
+            case RESUME: return OP_RESUME;
+            case NEW: return OP_NEW;
+            case CHORD: return OP_CHORD;
+            default: throw new IllegalArgumentException("The command " + command + " has no binary opcode.");
+        }
+    }
+
+    private static byte responseToOpcode(ServerResponseType type){
+        switch (type){
+            case CONTINUE: return OP_CONTINUE;
+            case WIN: return OP_WIN;
+            case LOSE: return OP_LOSE;
+            case INVALID_RANGE: return OP_INVALID_RANGE;
+            case WRONG_COMMAND: return OP_WRONG_COMMAND;
+            case GAME_NOT_STARTED: return OP_GAME_NOT_STARTED;
+            case SESSION_NOT_FOUND: return OP_SESSION_NOT_FOUND;
+            default: throw new IllegalArgumentException("The response " + type + " has no binary opcode.");
+        }
+    }
+
+    /**
+     * Method to get the 4 bits code of a cell.
+     * @param cell The character of the cell
+     * @return the code of the cell
+     */
+    public static int cellToCode(char cell){
+        if(cell == MinesweeperConfig.EMPTY_CHAR){
+            return CELL_HIDDEN;
+        }else if(cell == MinesweeperConfig.FLAG_CHAR){
+            return CELL_FLAG;
+        }else if(cell == MinesweeperConfig.BOMB_CHAR){
+            return CELL_BOMB;
+        }
+        return cell - '0';
+    }
+
+    /**
+     * Method to get the character of a cell from its 4 bits code.
+     * @param code The code of the cell
+     * @return the character of the cell
+     */
+    public static char codeToCell(int code){
+        switch (code){
+            case CELL_HIDDEN: return MinesweeperConfig.EMPTY_CHAR;
+            case CELL_FLAG: return MinesweeperConfig.FLAG_CHAR;
+            case CELL_BOMB: return MinesweeperConfig.BOMB_CHAR;
+            default: return (char) ('0' + code);
+        }
+    }
+
+    /**
+     * Method to write an int in big endian.
+     * @param buffer The buffer
+     * @param position The index of the first byte
+     * @param value The value to write
+     * @return the index following the int
+     */
+    public static int writeInt(byte[] buffer, int position, int value){
+        buffer[position] = (byte) (value >>> 24);
+        buffer[position + 1] = (byte) (value >>> 16);
+        buffer[position + 2] = (byte) (value >>> 8);
+        buffer[position + 3] = (byte) value;
+        return position + 4;
+    }
+
+    /**
+     * Method to read an int in big endian.
+     * @param buffer The buffer
+     * @param position The index of the first byte
+     * @return the value read
+     */
+    public static int readInt(byte[] buffer, int position){
+        return ((buffer[position] & 0xFF) << 24)
+                | ((buffer[position + 1] & 0xFF) << 16)
+                | ((buffer[position + 2] & 0xFF) << 8)
+                | (buffer[position + 3] & 0xFF);
+    }
+
+    /**
+     * Method to read a long in big endian.
+     * @param buffer The buffer
+     * @param position The index of the first byte
+     * @return the value read
+     */
+    public static long readLong(byte[] buffer, int position){
+        return ((long) readInt(buffer, position) << 32) | (readInt(buffer, position + 4) & 0xFFFFFFFFL);
+    }
+}
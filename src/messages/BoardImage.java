@@ -0,0 +1,102 @@
+package messages;
+
+import config.MinesweeperConfig;
+import config.Protocol;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Lawal Benjamin
+ * This class holds a board already encoded for both protocols: the lines of the text protocol and
+ * the cells packed on 4 bits of the binary protocol. A cell is updated in place when it changes,
+ * so a response copies the image instead of rendering the board again.
+ * @see BinaryCodec
+ */
+public class BoardImage {
+    private static final byte[] RETURN = Protocol.RETURN_CHAR.getBytes(StandardCharsets.US_ASCII);
+
+    private final int size;
+    private final int lineLength;//A line of the text image is the cells followed by a return
+    private final byte[] text;
+    private final byte[] packed;
+
+    /**
+     * Create the image of a board where every cell is hidden.
+     * @param size The size of the board
+     */
+    public BoardImage(int size) {
+        this.size = size;
+        this.lineLength = size + RETURN.length;
+        this.text = new byte[size * lineLength];
+        this.packed = new byte[(size * size + 1) / 2];
+        clear();
+    }
+
+    /**
+     * Method to hide every cell of the image again, for a new game of the same size.
+     */
+    public void clear() {
+        for (int x = 0; x < size; x++) {
+            int line = x * lineLength;
+            for (int y = 0; y < size; y++) {
+                text[line + y] = (byte) MinesweeperConfig.EMPTY_CHAR;
+            }
+            System.arraycopy(RETURN, 0, text, line + size, RETURN.length);
+        }
+        int hidden = BinaryCodec.cellToCode(MinesweeperConfig.EMPTY_CHAR);
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = (byte) (hidden << 4 | hidden);
+        }
+        if ((size * size & 1) == 1) {
+            packed[packed.length - 1] &= (byte) 0xF0;//The unused half of the last byte stays 0
+        }
+    }
+
+    /**
+     * Method to encode a whole board in the image.
+     * @param board The board
+     */
+    public void setBoard(char[][] board) {
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                set(x, y, board[x][y]);
+            }
+        }
+    }
+
+    /**
+     * Method to update a cell of the image.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param cell the character of the cell
+     */
+    public void set(int x, int y, char cell) {
+        text[x * lineLength + y] = (byte) cell;
+        int index = x * size + y;
+        int code = BinaryCodec.cellToCode(cell);
+        int current = packed[index >> 1];
+        packed[index >> 1] = (byte) ((index & 1) == 0 ? (current & 0x0F) | code << 4 : (current & 0xF0) | code);
+    }
+
+    /**
+     * Method to get the board encoded for the text protocol: every line ends with a return.
+     * The array must not be modified.
+     * @return the text image
+     */
+    public byte[] text() {
+        return text;
+    }
+
+    /**
+     * Method to get the cells encoded for the binary protocol: 4 bits per cell, the first cell in the high bits.
+     * The array must not be modified.
+     * @return the packed image
+     */
+    public byte[] packed() {
+        return packed;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,58 @@
+package messages;
+
+import config.MinesweeperConfig;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Lawal Benjamin
+ * This class is a pool of direct buffers shared by the message senders.
+ * A direct buffer is written to a channel without being copied first, but it is expensive to allocate,
+ * so the buffers are released to the pool once written instead of being allocated per message.
+ * The pool keeps at most a fixed number of free buffers, the others are left to the garbage collector.
+ * @see MessageSender
+ */
+public class BufferPool {
+    public static final BufferPool SHARED =
+            new BufferPool(MinesweeperConfig.WRITE_BUFFER_SIZE, MinesweeperConfig.WRITE_BUFFER_POOL_SIZE);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+    private final AtomicInteger pooled;//Number of free buffers in the queue
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.buffers = new ConcurrentLinkedQueue<>();
+        this.pooled = new AtomicInteger();
+    }
+
+    /**
+     * Method to get an empty buffer, from the pool if one is free.
+     * @return the buffer, ready to be filled
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Method to give a buffer back to the pool. It must not be used anymore by the caller.
+     * @param buffer The buffer
+     */
+    public void release(ByteBuffer buffer) {
+        if (pooled.incrementAndGet() <= maxPooled) {
+            buffers.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Lawal Benjamin
+ * This class is responsible for splitting the bytes received on a connection into messages (frames).
+ * A frame ends with a delimiter (the end of message of the protocol) and includes it.
+ * The bytes are kept in a ring buffer reused for the whole connection: the delimiter is found even when
+ * it is split between two reads, several frames can be decoded from a single read and the bytes following
+ * a delimiter are kept for the next frame. Nothing is allocated per frame once the buffer is large enough.
+ * A frame can't be longer than the maximum frame size, so that a peer never sending the delimiter
+ * can't make the buffer grow without bound.
+ * Once switched to the binary protocol, a frame is announced by its length (4 bytes, big endian) instead,
+ * the length is not part of the frame.
+ */
+public class FrameDecoder {
+    private final byte[] delimiter;
+    private final int[] fallback;//Failure table of the delimiter (Knuth-Morris-Pratt)
+    private final int maxFrameSize;
+    private byte[] buffer;//Ring buffer, its length is a power of two
+    private int mask;
+    private ByteBuffer channelView;//View of the ring buffer used to read from a channel
+    private int start;//Index of the first byte not consumed
+    private int size;//Number of bytes not consumed
+    private int scanned;//Number of bytes after start already searched for the delimiter
+    private int matched;//Number of bytes of the delimiter matched at the end of the scanned bytes
+    private int frameStart;
+    private int frameLength;
+    private int frameConsumed;//Number of bytes released with the current frame
+    private boolean isLengthPrefixed;
+
+    public FrameDecoder(String delimiter, int initialCapacity, int maxFrameSize) {
+        this.delimiter = delimiter.getBytes(StandardCharsets.US_ASCII);
+        this.fallback = buildFallback(this.delimiter);
+        this.maxFrameSize = maxFrameSize;
+        this.buffer = new byte[capacityFor(initialCapacity)];
+        this.mask = buffer.length - 1;
+        this.channelView = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Method to switch to the frames of the binary protocol, announced by their length.
+     * The bytes already received and not consumed are decoded as binary frames.
+     */
+    public void switchToLengthPrefixed() {
+        releaseFrame();
+        this.isLengthPrefixed = true;
+    }
+
+    /**
+     * Method to read the bytes available on a stream directly into the ring buffer.
+     * It blocks like the read method of the stream.
+     * @param inputStream The stream to read
+     * @return the number of bytes read or -1 at the end of the stream.
+     * @throws IOException if the stream can't be read.
+     */
+    public int readFrom(InputStream inputStream) throws IOException {
+        ensureFree(1);
+        int end = (start + size) & mask;
+        int bytesRead = inputStream.read(buffer, end, contiguousFree(end));
+        if (bytesRead > 0) {
+            size += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Method to read the bytes available on a channel directly into the ring buffer.
+     * @param channel The channel to read
+     * @return the number of bytes read, 0 if none are available on a non-blocking channel or -1 at the end of the stream.
+     * @throws IOException if the channel can't be read.
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        ensureFree(1);
+        int end = (start + size) & mask;
+        channelView.limit(end + contiguousFree(end)).position(end);
+        int bytesRead = channel.read(channelView);
+        if (bytesRead > 0) {
+            size += bytesRead;
+        }
+        return bytesRead;
+    }
+
+    /**
+     * Method to add received bytes to the decoder.
+     * @param source The array containing the bytes
+     * @param offset The index of the first byte to add
+     * @param length The number of bytes to add
+     */
+    public void feed(byte[] source, int offset, int length) {
+        ensureFree(length);
+        int end = (start + size) & mask;
+        int first = Math.min(length, buffer.length - end);
+        System.arraycopy(source, offset, buffer, end, first);
+        System.arraycopy(source, offset + first, buffer, 0, length - first);
+        size += length;
+    }
+
+    /**
+     * Method to find the next complete frame. The bytes of the previous frame are released.
+     * The frame can then be read with frameByteAt, copyFrame or frameToString
+     * until the next call to this method or to a read method.
+     * @return true if a complete frame is available, false if more bytes are needed.
+     * @throws IllegalStateException if the frame is longer than the maximum frame size.
+     */
+    public boolean nextFrame() {
+        releaseFrame();
+        if (isLengthPrefixed) {
+            return nextLengthPrefixedFrame();
+        }
+        while (scanned < size) {
+            byte b = buffer[(start + scanned) & mask];
+            scanned++;
+            while (matched > 0 && b != delimiter[matched]) {
+                matched = fallback[matched - 1];
+            }
+            if (b == delimiter[matched]) {
+                matched++;
+            }
+            if (matched == delimiter.length) {
+                frameStart = start;
+                frameLength = scanned;
+                frameConsumed = scanned;
+                return true;
+            }
+        }
+        if (size > maxFrameSize) {
+            throw new IllegalStateException("No end of message in the last " + size + " bytes received");
+        }
+        return false;
+    }
+
+    /**
+     * Method to find the next complete binary frame, announced by its length.
+     * @return true if a complete frame is available, false if more bytes are needed.
+     * @throws IllegalStateException if the announced length is negative or longer than the maximum frame size.
+     */
+    private boolean nextLengthPrefixedFrame() {
+        if (size < BinaryCodec.LENGTH_SIZE) {
+            return false;
+        }
+        int length = 0;
+        for (int i = 0; i < BinaryCodec.LENGTH_SIZE; i++) {
+            length = (length << 8) | (buffer[(start + i) & mask] & 0xFF);
+        }
+        if (length < 0 || length > maxFrameSize) {
+            throw new IllegalStateException("Invalid frame length : " + length);
+        }
+        if (size - BinaryCodec.LENGTH_SIZE < length) {
+            return false;
+        }
+        frameStart = (start + BinaryCodec.LENGTH_SIZE) & mask;
+        frameLength = length;
+        frameConsumed = BinaryCodec.LENGTH_SIZE + length;
+        return true;
+    }
+
+    /**
+     * Method to get the length of the current frame, delimiter included (length excluded for a binary frame).
+     * @return the length of the frame
+     */
+    public int frameLength() {
+        return frameLength;
+    }
+
+    /**
+     * Method to get a byte of the current frame.
+     * @param index The index of the byte in the frame
+     * @return the byte
+     */
+    public byte frameByteAt(int index) {
+        return buffer[(frameStart + index) & mask];
+    }
+
+    /**
+     * Method to get the ring buffer. Combined with frameStart and mask, it gives access to the
+     * current frame without copying it: the byte i of the frame is at the index frameStart() + i masked with mask().
+     * @return the ring buffer
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    /**
+     * Method to get the index of the first byte of the current frame in the ring buffer.
+     * @return the index of the frame
+     */
+    public int frameStart() {
+        return frameStart;
+    }
+
+    /**
+     * Method to get the mask to apply to an index of the ring buffer.
+     * @return the mask
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * Method to copy the current frame into an array.
+     * @param destination The array receiving the frame, it must have room for frameLength bytes
+     * @param offset The index where the frame is copied
+     */
+    public void copyFrame(byte[] destination, int offset) {
+        int first = Math.min(frameLength, buffer.length - frameStart);
+        System.arraycopy(buffer, frameStart, destination, offset, first);
+        System.arraycopy(buffer, 0, destination, offset + first, frameLength - first);
+    }
+
+    /**
+     * Method to get the current frame as a string.
+     * @return the frame, delimiter included
+     */
+    public String frameToString() {
+        byte[] frame = new byte[frameLength];
+        copyFrame(frame, 0);
+        return new String(frame, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Method to release the bytes of the current frame so that they can be overwritten.
+     */
+    private void releaseFrame() {
+        if (frameConsumed == 0) {
+            return;
+        }
+        start = (start + frameConsumed) & mask;
+        size -= frameConsumed;
+        scanned = 0;
+        matched = 0;
+        frameLength = 0;
+        frameConsumed = 0;
+    }
+
+    /**
+     * Method to get the number of free bytes that follow the index end without wrapping.
+     * @param end The index following the last byte stored
+     * @return the number of contiguous free bytes
+     */
+    private int contiguousFree(int end) {
+        return Math.min(buffer.length - size, buffer.length - end);
+    }
+
+    /**
+     * Method to make sure the ring buffer has room for the given number of bytes.
+     * The buffer is only grown when a frame is larger than the buffer, and never beyond the maximum frame size.
+     * @param length The number of bytes that will be added
+     * @throws IllegalStateException if the bytes not consumed would exceed the maximum frame size.
+     */
+    private void ensureFree(int length) {
+        releaseFrame();
+        if (buffer.length - size >= length) {
+            return;
+        }
+        if ((long) size + length > (long) maxFrameSize + BinaryCodec.LENGTH_SIZE) {
+            throw new IllegalStateException("More than " + maxFrameSize + " bytes received without a complete message");
+        }
+        byte[] larger = new byte[capacityFor(size + length)];
+        int first = Math.min(size, buffer.length - start);
+        System.arraycopy(buffer, start, larger, 0, first);
+        System.arraycopy(buffer, 0, larger, first, size - first);
+        buffer = larger;
+        mask = larger.length - 1;
+        channelView = ByteBuffer.wrap(buffer);
+        start = 0;
+    }
+
+    /**
+     * Method to get the smallest power of two greater or equal to the required capacity.
+     * @param required The required capacity
+     * @return the capacity of the ring buffer
+     */
+    private static int capacityFor(int required) {
+        int capacity = Integer.highestOneBit(Math.max(16, required));
+        return capacity < required ? capacity << 1 : capacity;
+    }
+
+    /**
+     * Method to build the failure table of the delimiter. For each prefix of the delimiter, it gives the length
+     * of its longest proper prefix which is also a suffix, so that a partial match is never scanned twice.
+     * @param delimiter The delimiter
+     * @return the failure table
+     */
+    private static int[] buildFallback(byte[] delimiter) {
+        int[] fallback = new int[delimiter.length];
+        int length = 0;
+        for (int i = 1; i < delimiter.length; i++) {
+            while (length > 0 && delimiter[i] != delimiter[length]) {
+                length = fallback[length - 1];
+            }
+            if (delimiter[i] == delimiter[length]) {
+                length++;
+            }
+            fallback[i] = length;
+        }
+        return fallback;
+    }
+}
@@ -1,4 +1,9 @@
 package messages;
+import config.LogLevel;
+import config.MinesweeperConfig;
+import trace.ReceiveEvent;
+import utils.AsyncLogger;
+
 import java.io.InputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
@@ -6,18 +11,25 @@ import java.net.SocketTimeoutException;
 /**
  * @author Lawal Benjamin
  * This class is responsoble for receiving messages from a socket.
+ * It only blocks in the socket read, without holding any monitor, so it is safe to use from a virtual thread.
+ * The messages are split by a frame decoder kept for the whole connection.
+ * Each message received is traced by a flight recorder event when the recording is on.
+ * The timeouts and errors are printed on the console, or recorded by a logger on the server.
+ * @see FrameDecoder
  */
 public class MessageReceiver {
     private final Socket socket;
-    private final int DEFAULT_BUFFER;//Default buffer size.
     private final String entity;//Only used for logging purposes.
-    private final String endMessage;//End of message.
+    private final FrameDecoder frameDecoder;
+    private long bytesReceived;
+    private String sessionID;//Only used for tracing and logging purposes.
+    private AsyncLogger logger;//Null to print the timeouts and errors on the console
 
     public MessageReceiver(String entity, Socket socket, int buffer_size,String endMessage) {
         this.entity = entity;
         this.socket = socket;
-        this.DEFAULT_BUFFER = buffer_size;
-        this.endMessage = endMessage;//Variable representing the end of a message that we want to receive. It is used to know when to stop receiving a message.
+        //The end of message is used by the decoder to know where a message stops.
+        this.frameDecoder = new FrameDecoder(endMessage, buffer_size, MinesweeperConfig.MAX_FRAME_SIZE);
     }
 
     /**
@@ -25,35 +37,111 @@ public class MessageReceiver {
      * @return the message received or null if none
      */
     public String receiveMessage() throws RuntimeException {
-        StringBuilder message = new StringBuilder();
-        byte[] buffer = new byte[DEFAULT_BUFFER];
-        int bytesRead;
-        boolean isEnd = false;
+        return receiveFrame() ? frameDecoder.frameToString() : null;
+    }
+
+    /**
+     * Method to receive a message of the binary protocol.
+     * @return the message received, starting with its opcode, or null if none
+     * @see BinaryCodec
+     */
+    public byte[] receiveBinaryMessage() throws RuntimeException {
+        if (!receiveFrame()) {
+            return null;
+        }
+        byte[] message = new byte[frameDecoder.frameLength()];
+        frameDecoder.copyFrame(message, 0);
+        return message;
+    }
+
+    /**
+     * Method to switch to the binary protocol once the handshake is done.
+     * The next messages are announced by their length instead of ending with the end of message.
+     */
+    public void switchToBinary() {
+        frameDecoder.switchToLengthPrefixed();
+    }
+
+    /**
+     * Method to receive the next message without converting it to a string.
+     * The message can then be read from the frame decoder until the next call.
+     * @return true if a message was received, false on timeout or if the connection is closed.
+     * @see #getFrameDecoder()
+     */
+    public boolean receiveFrame() throws RuntimeException {
+        ReceiveEvent event = new ReceiveEvent();
+        event.begin();
         try {
             InputStream inputStream = socket.getInputStream();
-            while (!isEnd) {
+            while (!frameDecoder.nextFrame()) {
                 try {
                     // Read from the socket input stream
-                    bytesRead = inputStream.read(buffer);
+                    int bytesRead = frameDecoder.readFrom(inputStream);
                     if (bytesRead == -1) {
-                        break;
-                    }
-                    String received = new String(buffer, 0, bytesRead);
-                    message.append(received);
-                    if (received.contains(endMessage)) {
-                        isEnd = true;
+                        return false;
                     }
+                    bytesReceived += bytesRead;
                 } catch (SocketTimeoutException e) {
                     // Timeout reached: stop reading
-                    System.out.printf("[%s] Timeout reached while receiving message.%n", entity);
-                    return null;  // Return null to signal that no message was received in time
+                    report(LogLevel.WARN, "Timeout reached while receiving message.");
+                    return false;  // Signal that no message was received in time
                 }
             }
+            event.end();
+            if (event.shouldCommit()) {
+                event.sessionId = sessionID;
+                event.bytes = frameDecoder.frameLength();
+                event.commit();
+            }
+            return true;
         } catch (Exception e) {
-            System.out.printf("[%s] An error occurred while receiving the message. [%s]%n", entity, e.getMessage());
+            report(LogLevel.ERROR, "An error occurred while receiving the message. [" + e.getMessage() + "]");
             throw new RuntimeException(e);
         }
-        return message.length() > 0 ? message.toString() : null;
     }
 
+    /**
+     * Method to get the number of bytes read from the socket since the receiver was created.
+     * @return the number of bytes received
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Method to set the id given to the flight recorder events of this receiver.
+     * @param sessionID The id of the backend serving the connection
+     */
+    public void setSessionID(String sessionID) {
+        this.sessionID = sessionID;
+    }
+
+    /**
+     * Method to record the timeouts and errors with a logger instead of printing them on the console.
+     * @param logger The logger of the server
+     */
+    public void setLogger(AsyncLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Method to get the frame decoder holding the last message received.
+     * @return the frame decoder
+     */
+    public FrameDecoder getFrameDecoder() {
+        return frameDecoder;
+    }
+
+    /**
+     * Method to print a message on the console, or to record it with the logger if there is one.
+     * @param level The level of the record
+     * @param message The message
+     */
+    private void report(LogLevel level, String message) {
+        if (logger == null) {
+            System.out.printf("[%s] %s%n", entity, message);
+        } else {
+            logger.log(level, sessionID, null, message);
+        }
+    }
 }
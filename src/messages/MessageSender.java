@@ -1,15 +1,52 @@
 package messages;
-import java.io.OutputStream;
+import config.LogLevel;
+import trace.SendEvent;
+import utils.AsyncLogger;
+
+import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 
 /**
  * @author Lawal Benjamin
  * This class is responsible for sending messages to a socket.
+ * The messages are encoded straight into pooled direct buffers, ASCII characters being written as bytes,
+ * and the messages appended before a write are sent together with a single gathering write.
+ * On a non-blocking channel, a write only sends what the socket accepts and the rest stays pending.
+ * A sender is only used by the thread serving its connection.
+ * Its errors are printed on the console, or recorded by a logger on the server.
+ * Each write is traced by a flight recorder event when the recording is on.
+ * @see BufferPool
  */
 public class MessageSender {
     private final Socket socket;
+    private WritableByteChannel channel;
+    private final BufferPool bufferPool;
+    private ByteBuffer[] queue;//Buffers ready to be written, from head to head + queued
+    private int head;
+    private int queued;
+    private ByteBuffer tail;//Buffer being filled, null if none
+    private long bytesSent;
+    private String sessionID;//Only used for tracing and logging purposes.
+    private AsyncLogger logger;//Null to print the errors on the console
+
     public MessageSender(Socket socket) {
         this.socket = socket;
+        //A socket accepted by a channel is written without going through its stream
+        this.channel = socket.getChannel();
+        this.bufferPool = BufferPool.SHARED;
+        this.queue = new ByteBuffer[8];
+    }
+
+    public MessageSender(WritableByteChannel channel) {
+        this.socket = null;
+        this.channel = channel;
+        this.bufferPool = BufferPool.SHARED;
+        this.queue = new ByteBuffer[8];
     }
 
     /**
@@ -17,15 +54,242 @@ public class MessageSender {
      * @return true if the message was sent successfully, false otherwise
      */
     public boolean sendMessage(String message) {
+        append(message);
+        return send();
+    }
+
+    /**
+     * Method to send an encoded message, used by the binary protocol.
+     * @param message The bytes of the message
+     * @return true if the message was sent successfully, false otherwise
+     */
+    public boolean sendBytes(byte[] message) {
+        append(message, 0, message.length);
+        return send();
+    }
+
+    /**
+     * Method to send all the pending messages, on a blocking channel.
+     * The pending messages are dropped if they can't be sent.
+     * @return true if the messages were sent successfully, false otherwise
+     */
+    public boolean send() {
         try {
-            OutputStream outputStream = socket.getOutputStream();
-            outputStream.write(message.getBytes());
-            outputStream.flush();
+            flush();
             return true;
         } catch (Exception e) {
-            System.out.println("An error occurred while sending the message. [" + e.getMessage() + "]");
+            String error = "An error occurred while sending the message. [" + e.getMessage() + "]";
+            if (logger == null) {
+                System.out.println(error);
+            } else {
+                logger.log(LogLevel.ERROR, sessionID, null, error);
+            }
+            discard();
             return false;
         }
     }
 
+    /**
+     * Method to add a message to the pending messages without sending it.
+     * The characters must be ASCII, each one is written as a single byte.
+     * @param message The message
+     */
+    public void append(CharSequence message) {
+        int length = message.length();
+        for (int i = 0; i < length; ) {
+            ByteBuffer buffer = room();
+            int end = Math.min(length, i + buffer.remaining());
+            while (i < end) {
+                buffer.put((byte) message.charAt(i++));
+            }
+        }
+    }
+
+    /**
+     * Method to add ASCII characters to the pending messages without sending them.
+     * @param source The array containing the characters
+     * @param offset The index of the first character
+     * @param length The number of characters
+     */
+    public void append(char[] source, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            ByteBuffer buffer = room();
+            int count = Math.min(end - offset, buffer.remaining());
+            for (int i = 0; i < count; i++) {
+                buffer.put((byte) source[offset++]);
+            }
+        }
+    }
+
+    /**
+     * Method to add encoded bytes to the pending messages without sending them.
+     * @param source The array containing the bytes
+     * @param offset The index of the first byte
+     * @param length The number of bytes
+     */
+    public void append(byte[] source, int offset, int length) {
+        int end = offset + length;
+        while (offset < end) {
+            ByteBuffer buffer = room();
+            int count = Math.min(end - offset, buffer.remaining());
+            buffer.put(source, offset, count);
+            offset += count;
+        }
+    }
+
+    /**
+     * Method to write the pending messages with as few writes as possible.
+     * On a non-blocking channel, only what the socket accepts is written and the rest stays pending.
+     * @return the number of bytes written
+     * @throws IOException if the channel can't be written.
+     * @see #hasPendingWrites()
+     */
+    public long write() throws IOException {
+        seal();
+        if (queued == 0) {
+            return 0;
+        }
+        SendEvent event = new SendEvent();
+        event.begin();
+        WritableByteChannel target = channel();
+        long written;
+        if (target instanceof GatheringByteChannel) {
+            written = ((GatheringByteChannel) target).write(queue, head, queued);
+        } else {
+            written = 0;
+            for (int i = head; i < head + queued; i++) {
+                while (queue[i].hasRemaining()) {
+                    written += target.write(queue[i]);
+                }
+            }
+        }
+        bytesSent += written;
+        event.end();
+        if (event.shouldCommit()) {
+            event.sessionId = sessionID;
+            event.bytes = written;
+            event.commit();
+        }
+        while (queued > 0 && !queue[head].hasRemaining()) {
+            bufferPool.release(queue[head]);
+            queue[head++] = null;
+            queued--;
+        }
+        if (queued == 0) {
+            head = 0;
+        }
+        return written;
+    }
+
+    /**
+     * Method to write all the pending messages, on a blocking channel.
+     * @throws IOException if the channel can't be written.
+     */
+    public void flush() throws IOException {
+        while (hasPendingWrites()) {
+            write();
+        }
+    }
+
+    /**
+     * Method to get the number of bytes written to the socket since the sender was created.
+     * @return the number of bytes sent
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Method to set the id given to the flight recorder events of this sender.
+     * @param sessionID The id of the backend serving the connection
+     */
+    public void setSessionID(String sessionID) {
+        this.sessionID = sessionID;
+    }
+
+    /**
+     * Method to record the errors with a logger instead of printing them on the console.
+     * @param logger The logger of the server
+     */
+    public void setLogger(AsyncLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Method to check if some bytes are still waiting to be written.
+     * @return true if there are pending bytes, false otherwise.
+     */
+    public boolean hasPendingWrites() {
+        return queued > 0 || (tail != null && tail.position() > 0);
+    }
+
+    /**
+     * Method to drop the pending messages and give their buffers back to the pool.
+     * It must be called once the connection is closed.
+     */
+    public void discard() {
+        for (int i = head; i < head + queued; i++) {
+            bufferPool.release(queue[i]);
+            queue[i] = null;
+        }
+        head = 0;
+        queued = 0;
+        if (tail != null) {
+            bufferPool.release(tail);
+            tail = null;
+        }
+    }
+
+    /**
+     * Method to get a buffer with room for at least one byte, the buffer being filled or a new one.
+     * @return the buffer to fill
+     */
+    private ByteBuffer room() {
+        if (tail == null || !tail.hasRemaining()) {
+            seal();
+            tail = bufferPool.acquire();
+        }
+        return tail;
+    }
+
+    /**
+     * Method to move the buffer being filled to the buffers ready to be written.
+     */
+    private void seal() {
+        if (tail == null) {
+            return;
+        }
+        if (tail.position() == 0) {
+            bufferPool.release(tail);
+        } else {
+            if (head + queued == queue.length) {
+                if (queued * 2 > queue.length) {
+                    ByteBuffer[] larger = new ByteBuffer[queue.length * 2];
+                    System.arraycopy(queue, head, larger, 0, queued);
+                    queue = larger;
+                } else {
+                    System.arraycopy(queue, head, queue, 0, queued);
+                    Arrays.fill(queue, queued, head + queued, null);
+                }
+                head = 0;
+            }
+            tail.flip();
+            queue[head + queued++] = tail;
+        }
+        tail = null;
+    }
+
+    /**
+     * Method to get the channel to write to. A socket created without a channel is written through its stream.
+     * @return the channel
+     * @throws IOException if the stream of the socket can't be opened.
+     */
+    private WritableByteChannel channel() throws IOException {
+        if (channel == null) {
+            channel = Channels.newChannel(socket.getOutputStream());
+        }
+        return channel;
+    }
+
 }
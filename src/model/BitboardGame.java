@@ -0,0 +1,582 @@
+package model;
+
+import config.MinesweeperConfig;
+import exception.UnauthorizeMoveException;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents the game with bitboards. It behaves exactly like Game, but the mines, the revealed cells
+ * and the flags are stored as packed bitsets (one bit per cell) instead of 2D arrays of characters.
+ * Each row of the board starts on a new word, so that the neighbours of 64 cells are computed at once with shifts.
+ * The boards of characters required by IGame are only rendered when they are asked for, and dropped by reset,
+ * so that a game only holds its bitsets while it is played: about 5 bits per cell.
+ * @see Game
+ */
+public class BitboardGame implements RestorableGame {
+    private final int size;
+    private final int numberOfMines;
+    private long seed;
+    private final int rowWords;//Number of words of a row
+    private final long lastWordMask;//Valid bits of the last word of a row
+    private final long[] mines;
+    private final long[] revealed;
+    private final long[] flags;
+    private final long[] zeros;//Safe cells without any mine around them
+    private final long[] region;//Work bitset of the flood fill, always cleared after use
+    private final long[] fill;//Work words of the flood fill for a row
+    private GameStatus gameStatus;
+    private int remainingSafeCells;//Safe cells neither revealed nor flagged
+    private int flagCount;
+    private int[] changedCells;//Cells changed by the last move, reused by all the moves
+    private int changedCellCount;
+    private char[][] board;
+    private char[][] cheatBoard;
+    private boolean isBoardRendered;
+    private boolean isCheatBoardRendered;
+
+    public BitboardGame(){
+        this(MinesweeperConfig.BOARD_SIZE);
+    }
+
+    public BitboardGame(int size){
+        this(size, MinesweeperConfig.NUMBER_OF_MINES, ThreadLocalRandom.current().nextLong());
+    }
+
+    public BitboardGame(int size, int numberOfMines, long seed){
+        if(numberOfMines >= size * size){
+            throw new IllegalArgumentException("There must be fewer mines than cells.");
+        }
+        this.size = size;
+        this.numberOfMines = numberOfMines;
+        this.seed = seed;
+        this.rowWords = (size + 63) >>> 6;
+        this.lastWordMask = (size & 63) == 0 ? -1L : (1L << (size & 63)) - 1;
+        this.mines = new long[size * rowWords];
+        this.revealed = new long[size * rowWords];
+        this.flags = new long[size * rowWords];
+        this.zeros = new long[size * rowWords];
+        this.region = new long[size * rowWords];
+        this.fill = new long[rowWords];
+        this.changedCells = new int[16];
+        this.gameStatus = GameStatus.NOT_STARTED;
+        this.remainingSafeCells = size * size - numberOfMines;
+    }
+
+    @Override
+    public char[][] cheatBoard() {
+        if(!isCheatBoardRendered){
+            if(cheatBoard == null){
+                cheatBoard = new char[size][size];
+            }
+            for(int x = 0; x < size; x++){
+                for(int y = 0; y < size; y++){
+                    cheatBoard[x][y] = isSet(mines, x, y) ? MinesweeperConfig.BOMB_CHAR : (char) ('0' + countMinesAround(x, y));
+                }
+            }
+            //The cheat board never changes once the mines are placed
+            isCheatBoardRendered = gameStatus != GameStatus.NOT_STARTED;
+        }
+        return cheatBoard;
+    }
+
+    @Override
+    public GameStatus playGame(int x, int y, GameCommands gameCommands) throws UnauthorizeMoveException {
+        changedCellCount = 0;
+        if(!isCellValid(x,y)){
+            throw new UnauthorizeMoveException("The cell is not valid.");
+        }
+        if(this.gameStatus == GameStatus.NOT_STARTED && gameCommands == GameCommands.CHORD){
+            return this.gameStatus;//No number is revealed yet
+        }
+        if(this.gameStatus == GameStatus.NOT_STARTED){
+            fillMines(x, y);
+            this.gameStatus = GameStatus.STARTED;
+        }
+        switch (gameCommands){
+            case TRY:
+                tryPlay(x,y);
+                break;
+            case FLAG:
+                flagCell(x,y);
+                break;
+            case CHORD:
+                chordPlay(x,y);
+                break;
+            default:
+                break;
+        }
+        return this.gameStatus;
+    }
+
+    @Override
+    public char[][] getBoard() {
+        if(board == null){
+            board = new char[size][size];
+        }
+        if(!isBoardRendered){
+            for(int x = 0; x < size; x++){
+                for(int y = 0; y < size; y++){
+                    board[x][y] = getCell(x, y);
+                }
+            }
+            isBoardRendered = true;
+        }
+        return board;
+    }
+
+    @Override
+    public char getCell(int x, int y) {
+        if(isSet(flags, x, y)){
+            return MinesweeperConfig.FLAG_CHAR;
+        }else if(isSet(revealed, x, y)){
+            return (char) ('0' + countMinesAround(x, y));
+        }
+        return MinesweeperConfig.EMPTY_CHAR;
+    }
+
+    @Override
+    public boolean isGameStarted() {
+        return this.gameStatus == GameStatus.STARTED;
+    }
+
+    @Override
+    public int getRemainingSafeCells() {
+        return remainingSafeCells;
+    }
+
+    @Override
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    @Override
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getBoardSize() {
+        return size;
+    }
+
+    @Override
+    public int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    @Override
+    public int getChangedCell(int index) {
+        return changedCells[index];
+    }
+
+    @Override
+    public boolean moveView(int x, int y) {
+        return false;//The whole board is always seen
+    }
+
+    @Override
+    public boolean isMine(int x, int y) {
+        return isSet(mines, x, y);
+    }
+
+    @Override
+    public void restore(char[][] savedBoard, int[] cells) {
+        if(cells.length == 0){
+            return;
+        }
+        Arrays.fill(mines, 0);
+        Arrays.fill(revealed, 0);
+        Arrays.fill(flags, 0);
+        placeMines(cells);
+        flagCount = 0;
+        remainingSafeCells = 0;
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                char cell = savedBoard[x][y];
+                if(cell == MinesweeperConfig.FLAG_CHAR){
+                    set(flags, x, y);
+                    flagCount++;
+                }else if(cell != MinesweeperConfig.EMPTY_CHAR){
+                    set(revealed, x, y);
+                }else if(!isSet(mines, x, y)){
+                    remainingSafeCells++;
+                }
+            }
+        }
+        gameStatus = GameStatus.STARTED;
+        isBoardRendered = false;
+        isCheatBoardRendered = false;
+    }
+
+    @Override
+    public void reset(long seed) {
+        this.seed = seed;
+        Arrays.fill(mines, 0);
+        Arrays.fill(revealed, 0);
+        Arrays.fill(flags, 0);
+        Arrays.fill(zeros, 0);
+        gameStatus = GameStatus.NOT_STARTED;
+        remainingSafeCells = size * size - numberOfMines;
+        flagCount = 0;
+        changedCellCount = 0;
+        //The boards of characters are 16 bits per cell, they are rendered again if the next game asks for them
+        board = null;
+        cheatBoard = null;
+        isBoardRendered = false;
+        isCheatBoardRendered = false;
+    }
+
+    /**
+     * Method to record a cell of the board changed by the current move.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private void recordChange(int x, int y){
+        if(changedCellCount == changedCells.length){
+            changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+        }
+        changedCells[changedCellCount++] = x * size + y;
+    }
+
+    /**
+     * Method to fill the board with mines. It will randomly place the mines on the board, never on the first cell played.
+     * The mines are the same as the ones of Game for the same seed and first move.
+     * @param x the x coordinate of the first cell played
+     * @param y the y coordinate of the first cell played
+     */
+    private void fillMines(int x, int y){
+        placeMines(MinePlacer.placeMines(size * size, numberOfMines, x * size + y, new SplittableRandom(seed)));
+    }
+
+    /**
+     * Method to set the bits of the mines and compute the cells without mines around them.
+     * @param cells the cells of the mines
+     */
+    private void placeMines(int[] cells){
+        for(int cell : cells){
+            set(mines, cell / size, cell % size);
+        }
+        computeZeros();
+    }
+
+    /**
+     * Method to compute the safe cells without any mine around them, for all the board at once:
+     * the complement of the mines spread to their 8 neighbours.
+     */
+    private void computeZeros(){
+        for(int row = 0; row < size; row++){
+            for(int w = 0; w < rowWords; w++){
+                long around = horizontal(mines, row - 1, w) | horizontal(mines, row, w) | horizontal(mines, row + 1, w);
+                zeros[row * rowWords + w] = ~around & validMask(w);
+            }
+        }
+    }
+
+    /**
+     * Method to check if the coordinates x,y are valid for the board.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the cell is valid, false otherwise.
+     */
+    private boolean isCellValid(int x, int y){
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    /**
+     * Method for the try command. It will try to play on the cell x,y.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private void tryPlay(int x, int y){
+        if(isSet(mines, x, y)){
+            this.gameStatus = GameStatus.GAME_OVER;
+        }else if(isSet(zeros, x, y)) {
+            revealAdjacentCells(x, y);
+        }else if(!isSet(revealed, x, y)){
+            //Like Game.updateBoard, revealing a number removes its flag
+            if(isSet(flags, x, y)){
+                clear(flags, x, y);
+                flagCount--;
+            }else {
+                remainingSafeCells--;
+            }
+            set(revealed, x, y);
+            recordChange(x, y);
+            isBoardRendered = false;
+        }
+        isTheGameFinished();
+    }
+
+    /**
+     * Method for the chord command. Like Game, if the cell x,y is a revealed number with as many flags around it,
+     * the other hidden cells around it are revealed in one move, and a wrong flag loses the game.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private void chordPlay(int x, int y){
+        if(!isSet(revealed, x, y) || isSet(zeros, x, y)){
+            return;
+        }
+        int flagsAround = 0;
+        for(int i = Math.max(0, x - 1); i <= Math.min(size - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(size - 1, y + 1); j++){
+                if(isSet(flags, i, j)){
+                    flagsAround++;
+                }
+            }
+        }
+        if(flagsAround != countMinesAround(x, y)){
+            return;
+        }
+        for(int i = Math.max(0, x - 1); i <= Math.min(size - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(size - 1, y + 1); j++){
+                if(isSet(revealed, i, j) || isSet(flags, i, j)){
+                    continue;
+                }
+                if(isSet(mines, i, j)){
+                    this.gameStatus = GameStatus.GAME_OVER;
+                    return;
+                }else if(isSet(zeros, i, j)){
+                    revealAdjacentCells(i, j);
+                }else {
+                    remainingSafeCells--;
+                    set(revealed, i, j);
+                    recordChange(i, j);
+                    isBoardRendered = false;
+                }
+            }
+        }
+        isTheGameFinished();
+    }
+
+    /**
+     * Method to reveal the adjacent cells of the cell x,y when the cell is empty.
+     * The region grows from the cell: every hidden cell (not flagged) next to an empty cell of the region joins it.
+     * The rows of the region are swept, alternately downward and upward, until the region stops growing.
+     * It reveals the same cells as the recursive reveal of Game.
+     * @param x the x coordinate of the cell played
+     * @param y the y coordinate of the cell played
+     */
+    private void revealAdjacentCells(int x, int y){
+        if(isSet(revealed, x, y) || isSet(flags, x, y)){
+            return;
+        }
+        set(region, x, y);
+        int firstRow = x;
+        int lastRow = x;
+        boolean isGrowing = true;
+        boolean isDownward = true;
+        while(isGrowing){
+            isGrowing = false;
+            //The bounds are checked on every row, so that the region can cross the whole board in a single sweep
+            int row = isDownward ? Math.max(0, firstRow - 1) : Math.min(size - 1, lastRow + 1);
+            while(row >= Math.max(0, firstRow - 1) && row <= Math.min(size - 1, lastRow + 1)){
+                if(growRow(row)){
+                    isGrowing = true;
+                    firstRow = Math.min(firstRow, row);
+                    lastRow = Math.max(lastRow, row);
+                }
+                row += isDownward ? 1 : -1;
+            }
+            isDownward = !isDownward;
+        }
+        for(int index = firstRow * rowWords; index < (lastRow + 1) * rowWords; index++){
+            revealed[index] |= region[index];
+            remainingSafeCells -= Long.bitCount(region[index]);
+            for(long bits = region[index]; bits != 0; bits &= bits - 1){
+                recordChange(index / rowWords, (index % rowWords) * 64 + Long.numberOfTrailingZeros(bits));
+            }
+            region[index] = 0;
+        }
+        isBoardRendered = false;
+    }
+
+    /**
+     * Method to grow the region in a row, 64 cells per operation.
+     * First the hidden cells next to an empty cell of the region, in this row or the rows around, join the region.
+     * Then the runs of hidden empty cells touching the region are filled in both directions with a carry
+     * propagation, and their neighbours in the row join the region too.
+     * @param row the row to grow
+     * @return true if the region has grown, false otherwise.
+     */
+    private boolean growRow(int row){
+        int base = row * rowWords;
+        boolean isGrowing = false;
+        for(int w = 0; w < rowWords; w++){
+            long around = horizontalZeros(row - 1, w) | horizontalZeros(row, w) | horizontalZeros(row + 1, w);
+            long added = around & hidden(base + w, w) & ~region[base + w];
+            if(added != 0){
+                region[base + w] |= added;
+                isGrowing = true;
+            }
+        }
+        //Upward fill (toward the last column) of the runs of hidden empty cells containing a cell of the region
+        long carry = 0;
+        for(int w = 0; w < rowWords; w++){
+            long empty = zeros[base + w] & hidden(base + w, w);
+            long seeds = region[base + w] & empty;
+            long sum = empty + seeds;
+            long nextCarry = Long.compareUnsigned(sum, empty) < 0 ? 1 : 0;
+            sum += carry;
+            if(sum == 0 && carry != 0){
+                nextCarry = 1;
+            }
+            fill[w] = ((sum ^ empty) & empty) | seeds;
+            carry = nextCarry;
+        }
+        //Downward fill (toward the first column), on the reversed words
+        carry = 0;
+        for(int w = rowWords - 1; w >= 0; w--){
+            long empty = Long.reverse(zeros[base + w] & hidden(base + w, w));
+            long seeds = Long.reverse(fill[w]) & empty;
+            long sum = empty + seeds;
+            long nextCarry = Long.compareUnsigned(sum, empty) < 0 ? 1 : 0;
+            sum += carry;
+            if(sum == 0 && carry != 0){
+                nextCarry = 1;
+            }
+            fill[w] = Long.reverse(((sum ^ empty) & empty) | seeds);
+            carry = nextCarry;
+        }
+        for(int w = 0; w < rowWords; w++){
+            long spread = spread(fill[w], w > 0 ? fill[w - 1] : 0, w < rowWords - 1 ? fill[w + 1] : 0);
+            long added = spread & hidden(base + w, w) & ~region[base + w];
+            if(added != 0){
+                region[base + w] |= added;
+                isGrowing = true;
+            }
+        }
+        return isGrowing;
+    }
+
+    /**
+     * Method to get a word of the hidden cells: not revealed and not flagged.
+     * @param index the index of the word
+     * @param w the index of the word in its row
+     * @return the word of the hidden cells
+     */
+    private long hidden(int index, int w){
+        return ~revealed[index] & ~flags[index] & validMask(w);
+    }
+
+    /**
+     * Method to get a word of the empty cells of the region, spread to their left and right neighbours.
+     * @param row the row of the word
+     * @param w the index of the word in the row
+     * @return the word, 0 if the row is outside the board
+     */
+    private long horizontalZeros(int row, int w){
+        if(row < 0 || row >= size){
+            return 0;
+        }
+        int index = row * rowWords + w;
+        long current = region[index] & zeros[index];
+        long previous = w > 0 ? region[index - 1] & zeros[index - 1] : 0;
+        long next = w < rowWords - 1 ? region[index + 1] & zeros[index + 1] : 0;
+        return spread(current, previous, next);
+    }
+
+    /**
+     * Method to get a word of a bitset, spread to the left and right neighbours of its cells.
+     * @param bits the bitset
+     * @param row the row of the word
+     * @param w the index of the word in the row
+     * @return the word, 0 if the row is outside the board
+     */
+    private long horizontal(long[] bits, int row, int w){
+        if(row < 0 || row >= size){
+            return 0;
+        }
+        int index = row * rowWords + w;
+        return spread(bits[index], w > 0 ? bits[index - 1] : 0, w < rowWords - 1 ? bits[index + 1] : 0);
+    }
+
+    /**
+     * Method to spread the bits of a word to their left and right neighbours.
+     * The bit y of a word is the column y of the row, so the neighbours come from the adjacent words at the edges.
+     * @param current the word
+     * @param previous the previous word of the row, 0 if none
+     * @param next the next word of the row, 0 if none
+     * @return the spread word
+     */
+    private static long spread(long current, long previous, long next){
+        return current | (current << 1) | (previous >>> 63) | (current >>> 1) | (next << 63);
+    }
+
+    /**
+     * Method to flag a cell. If the cell is already flagged, it will unflag it.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private void flagCell(int x, int y){
+        if(isSet(revealed, x, y)){
+            return;
+        }
+        flags[x * rowWords + (y >>> 6)] ^= 1L << y;
+        int change = isSet(flags, x, y) ? 1 : -1;
+        flagCount += change;
+        if(!isSet(mines, x, y)){
+            remainingSafeCells -= change;//A flagged safe cell is not counted as a remaining safe cell
+        }
+        recordChange(x, y);
+        isBoardRendered = false;
+    }
+
+    /**
+     * Method to check if the game is finished. Like Game, the game is finished when no safe cell is left hidden,
+     * a flagged cell not being hidden. The cells revealed are counted with a population count of the flood fill.
+     */
+    private void isTheGameFinished(){
+        if(remainingSafeCells == 0){
+            this.gameStatus = GameStatus.FINISHED;
+        }
+    }
+
+    /**
+     * Method to count the mines around a cell.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the number of mines around the cell
+     */
+    private int countMinesAround(int x, int y){
+        int count = 0;
+        for(int i = Math.max(0, x - 1); i <= Math.min(size - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(size - 1, y + 1); j++){
+                if(isSet(mines, i, j)){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method to get the valid bits of a word of a row: all of them except in the last word.
+     * @param w the index of the word in the row
+     * @return the mask of the valid bits
+     */
+    private long validMask(int w){
+        return w == rowWords - 1 ? lastWordMask : -1L;
+    }
+
+    private boolean isSet(long[] bits, int x, int y){
+        return (bits[x * rowWords + (y >>> 6)] & (1L << y)) != 0;
+    }
+
+    private void set(long[] bits, int x, int y){
+        bits[x * rowWords + (y >>> 6)] |= 1L << y;
+    }
+
+    private void clear(long[] bits, int x, int y){
+        bits[x * rowWords + (y >>> 6)] &= ~(1L << y);
+    }
+}
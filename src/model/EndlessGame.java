@@ -0,0 +1,559 @@
+package model;
+
+import config.MinesweeperConfig;
+import exception.UnauthorizeMoveException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents a game on a board without bounds. The world is split into square chunks and
+ * the mines of a chunk are derived from a hash of the seed of the game and the coordinates of the chunk,
+ * so a chunk is only stored once a move changes one of its cells. The mines of the chunks that are only looked at,
+ * by the cheat board or the numbers around a cell, are generated into a small cache of fixed size.
+ * The player sees a window of the world (the view) of BOARD_SIZE cells: the coordinates of the moves,
+ * the boards and the changed cells are relative to the view, which is moved with moveView.
+ * The game never ends with a win, a move reveals at most ENDLESS_MAX_REVEAL cells and the first cell played is never a mine.
+ * @see Game
+ */
+public class EndlessGame implements IGame {
+    private static final int WORLD_LIMIT = 1 << 30;//The world goes from -WORLD_LIMIT to WORLD_LIMIT - 1 in both directions
+    private static final byte HIDDEN = 0;
+    private static final byte REVEALED = 1;
+    private static final byte FLAGGED = 2;
+    private static final int MINE_CACHE_SIZE = 16;//Chunks whose mines are kept without being stored, a power of two
+
+    private final int viewSize;
+    private final int chunkSize;
+    private final int minesPerChunk;
+    private final int maxReveal;
+    private long seed;
+    private final Map<Long, Chunk> chunks;//Only the chunks changed by the moves
+    private long lastChunkKey;//Cache of the last chunk found, most lookups hit the same chunk
+    private Chunk lastChunk;
+    private final long[] cachedMineKeys;//Direct-mapped cache of the mines of the chunks not stored
+    private final long[][] cachedMines;
+    private final boolean[] isMineCached;
+    private GameStatus gameStatus;
+    private int firstX;//First cell played, in world coordinates
+    private int firstY;
+    private int originX;//Top left cell of the view, in world coordinates
+    private int originY;
+    private int flagCount;
+    private long[] revealQueue;//Work queue of the flood fill, cells packed as x << 32 | y
+    private int[] changedCells;//Cells of the view changed by the last move, reused by all the moves
+    private int changedCellCount;
+    private final char[][] board;//Rendering of the view, refreshed when it is asked for
+    private final char[][] cheatBoard;
+
+    /**
+     * A square of the world: its mines and the state of its cells.
+     */
+    private static class Chunk {
+        private final long[] mines;
+        private final byte[] cells;
+
+        private Chunk(int chunkSize) {
+            this.mines = new long[(chunkSize * chunkSize + 63) >>> 6];
+            this.cells = new byte[chunkSize * chunkSize];
+        }
+    }
+
+    public EndlessGame(){
+        this(MinesweeperConfig.BOARD_SIZE, ThreadLocalRandom.current().nextLong());
+    }
+
+    public EndlessGame(int viewSize, long seed){
+        this(viewSize, MinesweeperConfig.ENDLESS_CHUNK_SIZE, MinesweeperConfig.ENDLESS_MINES_PER_CHUNK,
+                MinesweeperConfig.ENDLESS_MAX_REVEAL, seed);
+    }
+
+    public EndlessGame(int viewSize, int chunkSize, int minesPerChunk, int maxReveal, long seed){
+        if(minesPerChunk >= chunkSize * chunkSize){
+            throw new IllegalArgumentException("There must be fewer mines than cells in a chunk.");
+        }
+        this.viewSize = viewSize;
+        this.chunkSize = chunkSize;
+        this.minesPerChunk = minesPerChunk;
+        this.maxReveal = maxReveal;
+        this.seed = seed;
+        this.chunks = new HashMap<>();
+        this.cachedMineKeys = new long[MINE_CACHE_SIZE];
+        this.cachedMines = new long[MINE_CACHE_SIZE][(chunkSize * chunkSize + 63) >>> 6];
+        this.isMineCached = new boolean[MINE_CACHE_SIZE];
+        this.gameStatus = GameStatus.NOT_STARTED;
+        this.revealQueue = new long[64];
+        this.changedCells = new int[16];
+        this.board = new char[viewSize][viewSize];
+        this.cheatBoard = new char[viewSize][viewSize];
+    }
+
+    @Override
+    public char[][] cheatBoard() {
+        for(int x = 0; x < viewSize; x++){
+            for(int y = 0; y < viewSize; y++){
+                int worldX = originX + x;
+                int worldY = originY + y;
+                cheatBoard[x][y] = isMine(worldX, worldY) ? MinesweeperConfig.BOMB_CHAR : (char) ('0' + countMinesAround(worldX, worldY));
+            }
+        }
+        return cheatBoard;
+    }
+
+    @Override
+    public GameStatus playGame(int x, int y, GameCommands gameCommands) throws UnauthorizeMoveException {
+        changedCellCount = 0;
+        if(x < 0 || x >= viewSize || y < 0 || y >= viewSize){
+            throw new UnauthorizeMoveException("The cell is not valid.");
+        }
+        int worldX = originX + x;
+        int worldY = originY + y;
+        if(this.gameStatus == GameStatus.NOT_STARTED && gameCommands == GameCommands.CHORD){
+            return this.gameStatus;//No number is revealed yet
+        }
+        if(this.gameStatus == GameStatus.NOT_STARTED){
+            //The mines of the chunk of the first cell depend on it, so it can't have been generated yet
+            chunks.clear();
+            lastChunk = null;
+            Arrays.fill(isMineCached, false);
+            firstX = worldX;
+            firstY = worldY;
+            this.gameStatus = GameStatus.STARTED;
+        }
+        switch (gameCommands){
+            case TRY:
+                tryPlay(worldX, worldY);
+                break;
+            case FLAG:
+                flagCell(worldX, worldY);
+                break;
+            case CHORD:
+                chordPlay(worldX, worldY);
+                break;
+            default:
+                break;
+        }
+        return this.gameStatus;
+    }
+
+    @Override
+    public boolean moveView(int x, int y) throws UnauthorizeMoveException {
+        if(x < -WORLD_LIMIT || x > WORLD_LIMIT - viewSize || y < -WORLD_LIMIT || y > WORLD_LIMIT - viewSize){
+            throw new UnauthorizeMoveException("The view is out of the world.");
+        }
+        this.originX = x;
+        this.originY = y;
+        return true;
+    }
+
+    /**
+     * Method to start a new game in place. The chunks of the previous game are dropped,
+     * the map holding them, the cache of the mines and the work arrays are kept.
+     * @param seed the seed of the new game
+     */
+    @Override
+    public void reset(long seed) {
+        this.seed = seed;
+        chunks.clear();
+        lastChunk = null;
+        Arrays.fill(isMineCached, false);
+        gameStatus = GameStatus.NOT_STARTED;
+        originX = 0;
+        originY = 0;
+        flagCount = 0;
+        changedCellCount = 0;
+    }
+
+    @Override
+    public char[][] getBoard() {
+        for(int x = 0; x < viewSize; x++){
+            for(int y = 0; y < viewSize; y++){
+                board[x][y] = getCell(x, y);
+            }
+        }
+        return board;
+    }
+
+    @Override
+    public char getCell(int x, int y) {
+        int worldX = originX + x;
+        int worldY = originY + y;
+        switch (getState(worldX, worldY)){
+            case FLAGGED:
+                return MinesweeperConfig.FLAG_CHAR;
+            case REVEALED:
+                return (char) ('0' + countMinesAround(worldX, worldY));
+            default:
+                return MinesweeperConfig.EMPTY_CHAR;
+        }
+    }
+
+    @Override
+    public boolean isGameStarted() {
+        return this.gameStatus == GameStatus.STARTED;
+    }
+
+    /**
+     * Method to get the number of safe cells of the view that are neither revealed nor flagged.
+     * The world has no end, so the game is not won when it reaches 0.
+     * @return the number of safe cells left in the view
+     */
+    @Override
+    public int getRemainingSafeCells() {
+        if(gameStatus == GameStatus.NOT_STARTED){
+            return viewSize * viewSize - 1;//At least the first cell played is safe
+        }
+        int remaining = 0;
+        for(int x = originX; x < originX + viewSize; x++){
+            for(int y = originY; y < originY + viewSize; y++){
+                if(getState(x, y) == HIDDEN && !isMine(x, y)){
+                    remaining++;
+                }
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * Method to get the number of mines of a chunk, the world having no end.
+     * @return the number of mines per chunk
+     */
+    @Override
+    public int getNumberOfMines() {
+        return minesPerChunk;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Method to get the size of the view.
+     * @return the number of lines (and columns) of the view
+     */
+    @Override
+    public int getBoardSize() {
+        return viewSize;
+    }
+
+    @Override
+    public int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    @Override
+    public int getChangedCell(int index) {
+        return changedCells[index];
+    }
+
+    /**
+     * Method to get the number of chunks stored so far, the chunks in which a move changed a cell.
+     * @return the number of chunks stored
+     */
+    public int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Method for the try command. It will try to play on the cell x,y of the world.
+     * Like Game, revealing a number removes its flag and a flagged empty cell is left as it is.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     */
+    private void tryPlay(int x, int y){
+        if(isMine(x, y)){
+            this.gameStatus = GameStatus.GAME_OVER;
+        }else if(countMinesAround(x, y) == 0){
+            revealAdjacentCells(x, y);
+        }else{
+            byte state = getState(x, y);
+            if(state == FLAGGED){
+                flagCount--;
+            }
+            if(state != REVEALED){
+                setState(x, y, REVEALED);
+            }
+        }
+    }
+
+    /**
+     * Method for the chord command. Like Game, if the cell x,y is a revealed number with as many flags around it,
+     * the other hidden cells around it are revealed in one move, and a wrong flag loses the game.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     */
+    private void chordPlay(int x, int y){
+        int minesAround = countMinesAround(x, y);
+        if(getState(x, y) != REVEALED || minesAround == 0){
+            return;
+        }
+        int flagsAround = 0;
+        for(int i = x - 1; i <= x + 1; i++){
+            for(int j = y - 1; j <= y + 1; j++){
+                if(isInWorld(i, j) && getState(i, j) == FLAGGED){
+                    flagsAround++;
+                }
+            }
+        }
+        if(flagsAround != minesAround){
+            return;
+        }
+        for(int i = x - 1; i <= x + 1; i++){
+            for(int j = y - 1; j <= y + 1; j++){
+                if(!isInWorld(i, j) || getState(i, j) != HIDDEN){
+                    continue;
+                }
+                if(isMine(i, j)){
+                    this.gameStatus = GameStatus.GAME_OVER;
+                    return;
+                }else if(countMinesAround(i, j) == 0){
+                    revealAdjacentCells(i, j);
+                }else {
+                    setState(i, j, REVEALED);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to reveal the region of empty cells around the cell x,y and its border.
+     * The flood fill is iterative and stops after maxReveal cells, the cells of the region left hidden
+     * can be played again to reveal the rest.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     */
+    private void revealAdjacentCells(int x, int y){
+        if(!revealCell(x, y)){
+            return;
+        }
+        int revealedCount = 1;
+        int head = 0;
+        int tail = 0;
+        revealQueue[tail++] = pack(x, y);
+        while(head < tail && revealedCount < maxReveal){
+            int cellX = (int) (revealQueue[head] >> 32);
+            int cellY = (int) revealQueue[head];
+            head++;
+            if(countMinesAround(cellX, cellY) != 0){
+                continue;
+            }
+            for(int i = cellX - 1; i <= cellX + 1 && revealedCount < maxReveal; i++){
+                for(int j = cellY - 1; j <= cellY + 1 && revealedCount < maxReveal; j++){
+                    if(revealCell(i, j)){
+                        revealedCount++;
+                        if(tail == revealQueue.length){
+                            revealQueue = Arrays.copyOf(revealQueue, revealQueue.length * 2);
+                        }
+                        revealQueue[tail++] = pack(i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to reveal a single cell of the flood fill, if it is in the world, hidden and not a mine.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     * @return true if the cell was revealed, false otherwise.
+     */
+    private boolean revealCell(int x, int y){
+        if(!isInWorld(x, y) || getState(x, y) != HIDDEN || isMine(x, y)){
+            return false;
+        }
+        setState(x, y, REVEALED);
+        return true;
+    }
+
+    /**
+     * Method to flag a cell. If the cell is already flagged, it will unflag it.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     */
+    private void flagCell(int x, int y){
+        byte state = getState(x, y);
+        if(state == FLAGGED){
+            setState(x, y, HIDDEN);
+            flagCount--;
+        }else if(state == HIDDEN){
+            setState(x, y, FLAGGED);
+            flagCount++;
+        }
+    }
+
+    /**
+     * Method to count the mines around a cell of the world.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     * @return the number of mines around the cell
+     */
+    private int countMinesAround(int x, int y){
+        int count = 0;
+        for(int i = x - 1; i <= x + 1; i++){
+            for(int j = y - 1; j <= y + 1; j++){
+                if((i != x || j != y) && isMine(i, j)){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private boolean isInWorld(int x, int y){
+        return x >= -WORLD_LIMIT && x < WORLD_LIMIT && y >= -WORLD_LIMIT && y < WORLD_LIMIT;
+    }
+
+    private boolean isMine(int x, int y){
+        if(!isInWorld(x, y)){
+            return false;
+        }
+        int index = localIndex(x, y);
+        return (findMines(x, y)[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Method to get the mines of the chunk of a cell without storing the chunk.
+     * The mines of a chunk not stored are generated into the cache, which evicts the chunk using the same entry.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     * @return the mines of the chunk, as bits
+     */
+    private long[] findMines(int x, int y){
+        Chunk chunk = findChunk(x, y, false);
+        if(chunk != null){
+            return chunk.mines;
+        }
+        int chunkX = Math.floorDiv(x, chunkSize);
+        int chunkY = Math.floorDiv(y, chunkSize);
+        long key = pack(chunkX, chunkY);
+        int entry = (int) mix(key) & (MINE_CACHE_SIZE - 1);
+        if(!isMineCached[entry] || cachedMineKeys[entry] != key){
+            generateMines(chunkX, chunkY, cachedMines[entry]);
+            cachedMineKeys[entry] = key;
+            isMineCached[entry] = true;
+        }
+        return cachedMines[entry];
+    }
+
+    /**
+     * Method to get the state of a cell without generating its chunk: the cells of a chunk not generated are hidden.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     * @return the state of the cell
+     */
+    private byte getState(int x, int y){
+        Chunk chunk = findChunk(x, y, false);
+        return chunk == null ? HIDDEN : chunk.cells[localIndex(x, y)];
+    }
+
+    /**
+     * Method to change the state of a cell, recording the change if the cell is in the view.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     * @param state the new state
+     */
+    private void setState(int x, int y, byte state){
+        getChunk(x, y).cells[localIndex(x, y)] = state;
+        int viewX = x - originX;
+        int viewY = y - originY;
+        if(viewX >= 0 && viewX < viewSize && viewY >= 0 && viewY < viewSize){
+            if(changedCellCount == changedCells.length){
+                changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+            }
+            changedCells[changedCellCount++] = viewX * viewSize + viewY;
+        }
+    }
+
+    private int localIndex(int x, int y){
+        return Math.floorMod(x, chunkSize) * chunkSize + Math.floorMod(y, chunkSize);
+    }
+
+    private Chunk getChunk(int x, int y){
+        return findChunk(x, y, true);
+    }
+
+    /**
+     * Method to find the chunk of a cell.
+     * @param x the x coordinate in the world
+     * @param y the y coordinate in the world
+     * @param isCreated true to generate the chunk if it does not exist yet
+     * @return the chunk, or null if it does not exist and isCreated is false
+     */
+    private Chunk findChunk(int x, int y, boolean isCreated){
+        int chunkX = Math.floorDiv(x, chunkSize);
+        int chunkY = Math.floorDiv(y, chunkSize);
+        long key = pack(chunkX, chunkY);
+        if(lastChunk != null && key == lastChunkKey){
+            return lastChunk;
+        }
+        Chunk chunk = chunks.get(key);
+        if(chunk == null){
+            if(!isCreated){
+                return null;
+            }
+            chunk = generateChunk(chunkX, chunkY);
+            chunks.put(key, chunk);
+        }
+        lastChunkKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Method to create a chunk to store, with its mines.
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkY the y coordinate of the chunk
+     * @return the new chunk
+     */
+    private Chunk generateChunk(int chunkX, int chunkY){
+        Chunk chunk = new Chunk(chunkSize);
+        generateMines(chunkX, chunkY, chunk.mines);
+        return chunk;
+    }
+
+    /**
+     * Method to generate the mines of a chunk from the hash of the seed and the coordinates of the chunk.
+     * The first cell played is never a mine.
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkY the y coordinate of the chunk
+     * @param mines the array receiving the mines as bits, cleared first
+     */
+    private void generateMines(int chunkX, int chunkY, long[] mines){
+        Arrays.fill(mines, 0);
+        int excludedCell = -1;
+        if(gameStatus != GameStatus.NOT_STARTED
+                && Math.floorDiv(firstX, chunkSize) == chunkX && Math.floorDiv(firstY, chunkSize) == chunkY){
+            excludedCell = localIndex(firstX, firstY);
+        }
+        long chunkSeed = mix(seed ^ mix(pack(chunkX, chunkY)));
+        int[] cells = MinePlacer.placeMines(chunkSize * chunkSize, minesPerChunk, excludedCell, new SplittableRandom(chunkSeed));
+        for(int mine : cells){
+            mines[mine >>> 6] |= 1L << mine;
+        }
+    }
+
+    private static long pack(int x, int y){
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Method to mix the bits of a value (finalizer of MurmurHash3), so that close chunks get unrelated mines.
+     * @param value The value to mix
+     * @return the hash of the value
+     */
+    private static long mix(long value){
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -3,19 +3,45 @@ package model;
 import config.MinesweeperConfig;
 import exception.UnauthorizeMoveException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * @author Lawal Benjamin
  * This class represents the game. It will handle the game logic.
  */
-public class Game implements IGame {
+public class Game implements RestorableGame {
+    private final int size;
+    private final int numberOfMines;
+    private long seed;
     private char [][] board;
     private char [][] cheatBoard;
     private GameStatus gameStatus;
+    private int[] revealQueue;//Work queue of the flood fill, reused by all the moves
+    private int remainingSafeCells;//Safe cells neither revealed nor flagged
+    private int flagCount;
+    private int[] changedCells;//Cells changed by the last move, reused by all the moves
+    private int changedCellCount;
 
     public Game(){
+        this(MinesweeperConfig.BOARD_SIZE);
+    }
+
+    public Game(int size){
+        this(size, MinesweeperConfig.NUMBER_OF_MINES, ThreadLocalRandom.current().nextLong());
+    }
+
+    public Game(int size, int numberOfMines, long seed){
+        if(numberOfMines >= size * size){
+            throw new IllegalArgumentException("There must be fewer mines than cells.");
+        }
+        this.size = size;
+        this.numberOfMines = numberOfMines;
+        this.seed = seed;
+        this.revealQueue = new int[Math.min(64, size * size)];
+        this.changedCells = new int[16];
+        this.remainingSafeCells = size * size - numberOfMines;
         gameStatus = GameStatus.NOT_STARTED;
         createBoard();
     }
@@ -28,11 +54,15 @@ public class Game implements IGame {
 
     @Override
     public GameStatus playGame(int x, int y, GameCommands gameCommands) throws UnauthorizeMoveException {
+        changedCellCount = 0;
         if(!isCellValid(x,y)){
             throw new UnauthorizeMoveException("The cell is not valid.");
         }
+        if(this.gameStatus == GameStatus.NOT_STARTED && gameCommands == GameCommands.CHORD){
+            return this.gameStatus;//No number is revealed yet
+        }
         if(this.gameStatus == GameStatus.NOT_STARTED){
-            fillMines(getPossibleMineCoordinates(), x, y);
+            fillMines(x, y);
             this.gameStatus = GameStatus.STARTED;
         }
         switch (gameCommands){
@@ -42,6 +72,9 @@ public class Game implements IGame {
             case FLAG:
                 flagCell(x,y);
                 break;
+            case CHORD:
+                chordPlay(x,y);
+                break;
             default:
                 break;
         }
@@ -53,11 +86,105 @@ public class Game implements IGame {
         return board;
     }
 
+    @Override
+    public char getCell(int x, int y) {
+        return board[x][y];
+    }
+
     @Override
     public boolean isGameStarted() {
         return this.gameStatus == GameStatus.STARTED;
     }
 
+    @Override
+    public int getRemainingSafeCells() {
+        return remainingSafeCells;
+    }
+
+    @Override
+    public int getFlagCount() {
+        return flagCount;
+    }
+
+    @Override
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    @Override
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getBoardSize() {
+        return size;
+    }
+
+    @Override
+    public int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    @Override
+    public int getChangedCell(int index) {
+        return changedCells[index];
+    }
+
+    @Override
+    public boolean moveView(int x, int y) {
+        return false;//The whole board is always seen
+    }
+
+    @Override
+    public boolean isMine(int x, int y) {
+        return gameStatus != GameStatus.NOT_STARTED && cheatBoard[x][y] == MinesweeperConfig.BOMB_CHAR;
+    }
+
+    @Override
+    public void restore(char[][] savedBoard, int[] mines) {
+        if(mines.length == 0){
+            return;
+        }
+        clearBoard();
+        placeMines(mines);
+        flagCount = 0;
+        remainingSafeCells = 0;
+        for(int x = 0; x < size; x++){
+            for(int y = 0; y < size; y++){
+                board[x][y] = savedBoard[x][y];
+                if(board[x][y] == MinesweeperConfig.FLAG_CHAR){
+                    flagCount++;
+                }else if(board[x][y] == MinesweeperConfig.EMPTY_CHAR && cheatBoard[x][y] != MinesweeperConfig.BOMB_CHAR){
+                    remainingSafeCells++;
+                }
+            }
+        }
+        gameStatus = GameStatus.STARTED;
+    }
+
+    @Override
+    public void reset(long seed) {
+        this.seed = seed;
+        clearBoard();
+        gameStatus = GameStatus.NOT_STARTED;
+        remainingSafeCells = size * size - numberOfMines;
+        flagCount = 0;
+        changedCellCount = 0;
+    }
+
+    /**
+     * Method to record a cell of the board changed by the current move.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private void recordChange(int x, int y){
+        if(changedCellCount == changedCells.length){
+            changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+        }
+        changedCells[changedCellCount++] = x * size + y;
+    }
+
 
     /**
      * Method to create the board and the cheat board.
@@ -65,10 +192,17 @@ public class Game implements IGame {
      * It will fill the board with empty characters and the cheat board with zeros.
      */
     private void createBoard(){
-        board = new char[MinesweeperConfig.BOARD_SIZE][MinesweeperConfig.BOARD_SIZE];
-        cheatBoard = new char[MinesweeperConfig.BOARD_SIZE][MinesweeperConfig.BOARD_SIZE];
-        for(int i = 0; i < MinesweeperConfig.BOARD_SIZE; i++){
-            for(int j = 0; j < MinesweeperConfig.BOARD_SIZE; j++){
+        board = new char[size][size];
+        cheatBoard = new char[size][size];
+        clearBoard();
+    }
+
+    /**
+     * Method to fill the existing board with empty characters and the cheat board with zeros.
+     */
+    private void clearBoard(){
+        for(int i = 0; i < size; i++){
+            for(int j = 0; j < size; j++){
                 board[i][j] = MinesweeperConfig.EMPTY_CHAR;
                 cheatBoard[i][j] = '0';
             }
@@ -77,21 +211,24 @@ public class Game implements IGame {
 
 
     /**
-     * Method to fill the board with mines. It will randomly place the mines on the board.
-     * The number of mines is defined in the configuration file.
-     * @see MinesweeperConfig
+     * Method to fill the board with mines. It will randomly place the mines on the board, never on the first cell played.
+     * The random generator is created from the seed of the game.
+     * @param x the x coordinate of the first cell played
+     * @param y the y coordinate of the first cell played
+     * @see MinePlacer
      */
-    private void fillMines(List<int[]> possibleCoordinates, int x, int y){
-        for(int i = 0; i < MinesweeperConfig.NUMBER_OF_MINES; i++){
-            int randomIndex = (int) (Math.random() * possibleCoordinates.size());
-            int [] coordinates = possibleCoordinates.get(randomIndex);
-            if(coordinates[0] == x && coordinates[1] == y){
-                i--;
-                continue;
-            }
-            cheatBoard[coordinates[0]][coordinates[1]] = MinesweeperConfig.BOMB_CHAR;
-            updateCase(coordinates[0], coordinates[1]);
-            possibleCoordinates.remove(randomIndex);//Remove so that the mine is not placed twice
+    private void fillMines(int x, int y){
+        placeMines(MinePlacer.placeMines(size * size, numberOfMines, x * size + y, new SplittableRandom(seed)));
+    }
+
+    /**
+     * Method to put the mines on the cheat board and count them around each cell.
+     * @param mines the cells of the mines
+     */
+    private void placeMines(int[] mines){
+        for(int mine : mines){
+            cheatBoard[mine / size][mine % size] = MinesweeperConfig.BOMB_CHAR;
+            updateCase(mine / size, mine % size);
         }
     }
 
@@ -103,7 +240,7 @@ public class Game implements IGame {
     private void updateCase(int x, int y){
         for(int i = x-1; i <= x+1; i++){
             for(int j = y-1; j <= y+1; j++){
-                if(i >= 0 && i < MinesweeperConfig.BOARD_SIZE && j >= 0 && j < MinesweeperConfig.BOARD_SIZE){
+                if(i >= 0 && i < size && j >= 0 && j < size){
                     if(cheatBoard[i][j] != MinesweeperConfig.BOMB_CHAR){
                         cheatBoard[i][j] = (char) (cheatBoard[i][j] + 1);
                     }
@@ -112,24 +249,6 @@ public class Game implements IGame {
         }
     }
 
-    /**
-     * Method to get all the possible coordinates on the board.
-     * @return a list of all the possible coordinates on the board.
-     */
-    private List<int[]> getPossibleMineCoordinates(){
-        List<int[]> possibleCoordinates = new ArrayList<>(MinesweeperConfig.BOARD_SIZE* MinesweeperConfig.BOARD_SIZE);
-        for(int i = 0; i < MinesweeperConfig.BOARD_SIZE; i++){
-            for(int j = 0; j < MinesweeperConfig.BOARD_SIZE; j++){
-                int [] coordinates = new int[2];
-                coordinates[0] = i;
-                coordinates[1] = j;
-                possibleCoordinates.add(coordinates);
-            }
-        }
-        return possibleCoordinates;
-    }
-
-
     /**
      * Method to check if the coordinates x,y are valid for the board.
      * @param x the x coordinate
@@ -137,7 +256,7 @@ public class Game implements IGame {
      * @return true if the cell is valid, false otherwise.
      */
     private boolean isCellValid(int x, int y){
-        return x >= 0 && x < MinesweeperConfig.BOARD_SIZE && y >= 0 && y < MinesweeperConfig.BOARD_SIZE;
+        return x >= 0 && x < size && y >= 0 && y < size;
     }
 
     /**
@@ -149,37 +268,114 @@ public class Game implements IGame {
         if(cheatBoard[x][y] == MinesweeperConfig.BOMB_CHAR){
             this.gameStatus = GameStatus.GAME_OVER;
         }else if(cheatBoard[x][y] == '0') {
-            revealAdjacentCellsRecursive(x, y);
+            revealAdjacentCells(x, y);
         }else{
             updateBoard(x,y,cheatBoard[x][y]);
         }
         isTheGameFinished();
     }
 
+    /**
+     * Method for the chord command. If the cell x,y is a revealed number with as many flags around it,
+     * the other hidden cells around it are revealed as with the try command, in one move.
+     * A wrong flag makes the chord reveal a bomb, and the game is lost.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private void chordPlay(int x, int y){
+        char number = board[x][y];
+        if(number < '1' || number > '8' || countAround(board, x, y, MinesweeperConfig.FLAG_CHAR) != number - '0'){
+            return;
+        }
+        for(int i = Math.max(0, x - 1); i <= Math.min(size - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(size - 1, y + 1); j++){
+                if(board[i][j] != MinesweeperConfig.EMPTY_CHAR){
+                    continue;
+                }
+                if(cheatBoard[i][j] == MinesweeperConfig.BOMB_CHAR){
+                    this.gameStatus = GameStatus.GAME_OVER;
+                    return;
+                }else if(cheatBoard[i][j] == '0'){
+                    revealAdjacentCells(i, j);
+                }else {
+                    updateBoard(i, j, cheatBoard[i][j]);
+                }
+            }
+        }
+        isTheGameFinished();
+    }
+
+    /**
+     * Method to count the cells around x,y holding a character.
+     * @param cells the board to look at
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param c the character to count
+     * @return the number of cells around x,y holding c
+     */
+    private int countAround(char[][] cells, int x, int y, char c){
+        int count = 0;
+        for(int i = Math.max(0, x - 1); i <= Math.min(size - 1, x + 1); i++){
+            for(int j = Math.max(0, y - 1); j <= Math.min(size - 1, y + 1); j++){
+                if((i != x || j != y) && cells[i][j] == c){
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Method to reveal the adjacent cells of the cell x,y when the cell is empty.
+     * The flood fill is iterative: the cells revealed are put in a work queue reused by all the moves of the game,
+     * so the stack does not grow with the size of the region and the cost is proportional to the cells revealed.
      * @param x the x coordinate of the cell played
      * @param y the y coordinate of the cell played
      */
-    private void revealAdjacentCellsRecursive(int x, int y) {
-        if (x < 0 || x >= MinesweeperConfig.BOARD_SIZE || y < 0 || y >= MinesweeperConfig.BOARD_SIZE || board[x][y] != MinesweeperConfig.EMPTY_CHAR) {
+    private void revealAdjacentCells(int x, int y) {
+        if (!revealCell(x, y)) {
             return;
         }
+        int head = 0;
+        int tail = 0;
+        revealQueue[tail++] = x * size + y;
+        while (head < tail) {
+            int cellX = revealQueue[head] / size;
+            int cellY = revealQueue[head] % size;
+            head++;
+            if (cheatBoard[cellX][cellY] != '0') {
+                continue;
+            }
+            for (int i = cellX - 1; i <= cellX + 1; i++) {
+                for (int j = cellY - 1; j <= cellY + 1; j++) {
+                    if (revealCell(i, j)) {
+                        if (tail == revealQueue.length) {
+                            revealQueue = Arrays.copyOf(revealQueue, Math.min(revealQueue.length * 2, size * size));
+                        }
+                        revealQueue[tail++] = i * size + j;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method to reveal a single cell of the flood fill, if it is on the board, hidden and not a bomb.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the cell was revealed, false otherwise.
+     */
+    private boolean revealCell(int x, int y) {
+        if (x < 0 || x >= size || y < 0 || y >= size || board[x][y] != MinesweeperConfig.EMPTY_CHAR) {
+            return false;
+        }
         if (cheatBoard[x][y] == MinesweeperConfig.BOMB_CHAR) {
-            return;
+            return false;
         }
         board[x][y] = cheatBoard[x][y];
-        if (cheatBoard[x][y] != '0') {
-            return;
-        }
-        revealAdjacentCellsRecursive(x - 1, y);
-        revealAdjacentCellsRecursive(x + 1, y);
-        revealAdjacentCellsRecursive(x, y - 1);
-        revealAdjacentCellsRecursive(x, y + 1);
-        revealAdjacentCellsRecursive(x - 1, y - 1);
-        revealAdjacentCellsRecursive(x - 1, y + 1);
-        revealAdjacentCellsRecursive(x + 1, y - 1);
-        revealAdjacentCellsRecursive(x + 1, y + 1);
+        remainingSafeCells--;
+        recordChange(x, y);
+        return true;
     }
 
 
@@ -190,8 +386,14 @@ public class Game implements IGame {
      * @param toInsert the char to insert into the board.
      */
     private void updateBoard(int x, int y, char toInsert){
-        if(board[x][y] == MinesweeperConfig.EMPTY_CHAR || board[x][y] == MinesweeperConfig.FLAG_CHAR){
+        if(board[x][y] == MinesweeperConfig.EMPTY_CHAR){
+            remainingSafeCells--;
+            board[x][y] = toInsert;
+            recordChange(x, y);
+        }else if(board[x][y] == MinesweeperConfig.FLAG_CHAR){
+            flagCount--;
             board[x][y] = toInsert;
+            recordChange(x, y);
         }
     }
 
@@ -201,24 +403,28 @@ public class Game implements IGame {
      * @param y the y coordinate
      */
     private void flagCell(int x, int y){
+        //A flagged safe cell is not counted as a remaining safe cell
+        int safeCell = cheatBoard[x][y] != MinesweeperConfig.BOMB_CHAR ? 1 : 0;
         if(board[x][y] == MinesweeperConfig.FLAG_CHAR){
             board[x][y] = MinesweeperConfig.EMPTY_CHAR;
+            flagCount--;
+            remainingSafeCells += safeCell;
+            recordChange(x, y);
         }else if(board[x][y] == MinesweeperConfig.EMPTY_CHAR){
             board[x][y] = MinesweeperConfig.FLAG_CHAR;
+            flagCount++;
+            remainingSafeCells -= safeCell;
+            recordChange(x, y);
         }
     }
 
     /**
      * Method to check if the game is finished. The game is finished when all the cells are revealed.
+     * The safe cells left are counted by the moves, so the board is not scanned.
      */
     private void isTheGameFinished(){
-        for(int i = 0; i < MinesweeperConfig.BOARD_SIZE; i++){
-            for(int j = 0; j < MinesweeperConfig.BOARD_SIZE; j++){
-                if(board[i][j] == MinesweeperConfig.EMPTY_CHAR && cheatBoard[i][j] != MinesweeperConfig.BOMB_CHAR){
-                    return;
-                }
-            }
+        if(remainingSafeCells == 0){
+            this.gameStatus = GameStatus.FINISHED;
         }
-        this.gameStatus = GameStatus.FINISHED;
     }
 }
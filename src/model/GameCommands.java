@@ -3,7 +3,16 @@ package model;
 public enum GameCommands {
     TRY,
     FLAG,
+    CHORD,
     CHEAT,
     QUIT,
+    DELTA,
+    SYNC,
+    VIEW,
+    BINARY,
+    SESSION,
+    RESUME,
+    NEW,
+    BATCH,
     WRONG
 }
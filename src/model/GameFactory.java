@@ -0,0 +1,40 @@
+package model;
+
+import config.GameEngine;
+import config.MinesweeperConfig;
+
+/**
+ * @author Lawal Benjamin
+ * This class is responsible for creating the games with the engine selected in the configuration.
+ * @see GameEngine
+ */
+public class GameFactory {
+
+    /**
+     * Method to create a new game with the engine of the configuration.
+     * @return the new game
+     */
+    public static IGame createGame(){
+        if(MinesweeperConfig.GAME_ENGINE == GameEngine.BITBOARD){
+            return new BitboardGame();
+        }else if(MinesweeperConfig.GAME_ENGINE == GameEngine.ENDLESS){
+            return new EndlessGame();
+        }
+        return new Game();
+    }
+
+    /**
+     * Method to create a game with the engine of the configuration, for a saved game.
+     * The endless engine can't be saved, a classic game is created instead.
+     * @param size the size of the board
+     * @param numberOfMines the number of mines
+     * @param seed the seed of the game
+     * @return the new game, not started
+     */
+    public static RestorableGame createGame(int size, int numberOfMines, long seed){
+        if(MinesweeperConfig.GAME_ENGINE == GameEngine.BITBOARD){
+            return new BitboardGame(size, numberOfMines, seed);
+        }
+        return new Game(size, numberOfMines, seed);
+    }
+}
@@ -24,10 +24,80 @@ public interface IGame {
      */
     char [][] getBoard();
 
+    /**
+     * Method to get a single cell of the board, as the player sees it.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the character of the cell
+     */
+    char getCell(int x, int y);
+
     /**
      * Method to check if the game is started.
      * @return true if the game is started, false otherwise.
      */
     boolean isGameStarted();
 
+    /**
+     * Method to get the number of safe cells that are neither revealed nor flagged.
+     * The game is won when it reaches 0. It is kept up to date by the moves, so it costs nothing to call.
+     * @return the number of safe cells left
+     */
+    int getRemainingSafeCells();
+
+    /**
+     * Method to get the number of flags placed on the board.
+     * @return the number of flags
+     */
+    int getFlagCount();
+
+    /**
+     * Method to get the number of mines of the board.
+     * @return the number of mines
+     */
+    int getNumberOfMines();
+
+    /**
+     * Method to get the seed of the random generator of the game.
+     * The mines of a game are reproduced from its seed and its first move.
+     * @return the seed
+     */
+    long getSeed();
+
+    /**
+     * Method to get the size of the board.
+     * @return the number of lines (and columns) of the board
+     */
+    int getBoardSize();
+
+    /**
+     * Method to get the number of cells of the board changed by the last call to playGame.
+     * @return the number of cells changed
+     */
+    int getChangedCellCount();
+
+    /**
+     * Method to get a cell changed by the last call to playGame.
+     * @param index the index of the change, lower than getChangedCellCount
+     * @return the cell changed, as x * getBoardSize() + y
+     */
+    int getChangedCell(int index);
+
+    /**
+     * Method to move the window of the board seen by the player, on a board without bounds.
+     * The coordinates of the moves, the boards and the changed cells are relative to the window.
+     * @param x the x coordinate of the top left cell of the window
+     * @param y the y coordinate of the top left cell of the window
+     * @return false if the board has a fixed size and can't be moved, true otherwise.
+     * @throws UnauthorizeMoveException if the window would leave the board.
+     */
+    boolean moveView(int x, int y) throws UnauthorizeMoveException;
+
+    /**
+     * Method to start a new game in place: the board is cleared and its arrays are reused, nothing is allocated.
+     * The mines are placed by the first move, as for a new game.
+     * @param seed the seed of the random generator of the new game
+     */
+    void reset(long seed);
+
 }
@@ -0,0 +1,75 @@
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * @author Lawal Benjamin
+ * This class is responsible for choosing the cells of the mines.
+ * The cells are indexes (x * size + y) and the random generator is given by the game, so that a game
+ * can be reproduced from its seed and its first move, and the games do not share a random generator.
+ */
+public class MinePlacer {
+
+    /**
+     * Method to choose the cells of the mines, never on the excluded cell.
+     * Sparse boards use a rejection sampler over a bitset, dense boards a partial Fisher-Yates shuffle of the cells,
+     * so the cost depends on the number of mines rather than on a list of all the coordinates.
+     * @param cells The number of cells of the board
+     * @param mines The number of mines, lower than the number of cells
+     * @param excludedCell The cell where no mine can be placed (the first cell played), -1 if there is none
+     * @param random The random generator of the game
+     * @return the indexes of the cells of the mines
+     */
+    public static int[] placeMines(int cells, int mines, int excludedCell, SplittableRandom random){
+        if(mines >= cells){
+            throw new IllegalArgumentException("There must be fewer mines than cells.");
+        }
+        return mines * 2 <= cells ? sample(cells, mines, excludedCell, random) : shuffle(cells, mines, excludedCell, random);
+    }
+
+    /**
+     * Method to draw random cells until enough distinct cells are found. Efficient when most cells are not mines.
+     */
+    private static int[] sample(int cells, int mines, int excludedCell, SplittableRandom random){
+        int[] result = new int[mines];
+        long[] taken = new long[(cells + 63) >>> 6];
+        if(excludedCell >= 0){
+            taken[excludedCell >>> 6] |= 1L << excludedCell;
+        }
+        int placed = 0;
+        while(placed < mines){
+            int cell = random.nextInt(cells);
+            if((taken[cell >>> 6] & (1L << cell)) != 0){
+                continue;
+            }
+            taken[cell >>> 6] |= 1L << cell;
+            result[placed++] = cell;
+        }
+        return result;
+    }
+
+    /**
+     * Method to shuffle only the first cells of the board, the excluded cell being moved out of the draw.
+     */
+    private static int[] shuffle(int cells, int mines, int excludedCell, SplittableRandom random){
+        int[] candidates = new int[cells];
+        for(int i = 0; i < cells; i++){
+            candidates[i] = i;
+        }
+        int available = cells;
+        if(excludedCell >= 0){
+            candidates[excludedCell] = cells - 1;
+            candidates[cells - 1] = excludedCell;
+            available--;
+        }
+        for(int i = 0; i < mines; i++){
+            int j = i + random.nextInt(available - i);
+            int cell = candidates[j];
+            candidates[j] = candidates[i];
+            candidates[i] = cell;
+        }
+        int[] result = new int[mines];
+        System.arraycopy(candidates, 0, result, 0, mines);
+        return result;
+    }
+}
@@ -0,0 +1,24 @@
+package model;
+
+/**
+ * @author Lawal Benjamin
+ * A game whose board has a fixed size, so that it can be saved and restored by the session store.
+ * @see server.SessionStore
+ */
+public interface RestorableGame extends IGame {
+    /**
+     * Method to restore a saved game without replaying its moves: the mines are placed and the board is copied.
+     * A game without mines has not started yet and is left as it is.
+     * @param board the board as the player saw it
+     * @param mines the cells of the mines, as x * getBoardSize() + y
+     */
+    void restore(char[][] board, int[] mines);
+
+    /**
+     * Method to check if a cell holds a mine, so that the mines are saved without rendering the cheat board.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the cell holds a mine, false otherwise or if the mines are not placed yet.
+     */
+    boolean isMine(int x, int y);
+}
@@ -8,7 +8,10 @@ public enum ServerResponseType {
     WIN,
     LOSE,
     CONTINUE,
+    DELTA,
     INVALID_RANGE,
     WRONG_COMMAND,
-    GAME_NOT_STARTED
+    GAME_NOT_STARTED,
+    SESSION,
+    SESSION_NOT_FOUND
 }
@@ -0,0 +1,122 @@
+package server;
+
+import model.GameCommands;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents a command analysed from a client message.
+ * A single instance is reused by a connection for all its messages, the analyser overwrites it.
+ * @see ClientMessageAnalyser
+ */
+public class ClientCommand {
+    private GameCommands command;
+    private int x;
+    private int y;
+    private UUID token;//Only used by the RESUME command
+    private GameCommands[] batchCommands;//Moves of the BATCH command, the arrays grow with the largest batch
+    private int[] batchX;
+    private int[] batchY;
+    private int batchSize;
+
+    public ClientCommand() {
+        this.command = GameCommands.WRONG;
+        this.batchCommands = new GameCommands[8];
+        this.batchX = new int[8];
+        this.batchY = new int[8];
+    }
+
+    /**
+     * Method to set the command and its coordinates.
+     * @param command The command
+     * @param x the x coordinate, only used by the TRY and FLAG commands
+     * @param y the y coordinate, only used by the TRY and FLAG commands
+     */
+    public void set(GameCommands command, int x, int y) {
+        this.command = command;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Method to set a command carrying a session token: RESUME.
+     * @param command The command
+     * @param token The session token
+     */
+    public void set(GameCommands command, UUID token) {
+        set(command, 0, 0);
+        this.token = token;
+    }
+
+    /**
+     * Method to remove the moves of the previous batch.
+     */
+    public void clearBatch() {
+        this.batchSize = 0;
+    }
+
+    /**
+     * Method to add a move to the batch. The command must be set to BATCH once all the moves are added.
+     * @param command TRY, FLAG or CHORD
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public void addBatchMove(GameCommands command, int x, int y) {
+        if(batchSize == batchCommands.length){
+            batchCommands = Arrays.copyOf(batchCommands, batchSize * 2);
+            batchX = Arrays.copyOf(batchX, batchSize * 2);
+            batchY = Arrays.copyOf(batchY, batchSize * 2);
+        }
+        batchCommands[batchSize] = command;
+        batchX[batchSize] = x;
+        batchY[batchSize] = y;
+        batchSize++;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public GameCommands getBatchCommand(int index) {
+        return batchCommands[index];
+    }
+
+    public int getBatchX(int index) {
+        return batchX[index];
+    }
+
+    public int getBatchY(int index) {
+        return batchY[index];
+    }
+
+    public GameCommands getCommand() {
+        return command;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public UUID getToken() {
+        return token;
+    }
+
+    @Override
+    public String toString() {
+        boolean hasCoordinates = command == GameCommands.TRY || command == GameCommands.FLAG
+                || command == GameCommands.CHORD || command == GameCommands.VIEW;
+        if(command == GameCommands.RESUME){
+            return command + " " + token;
+        }
+        if(command == GameCommands.BATCH){
+            return command + " " + batchSize;
+        }
+        return hasCoordinates ? command + " " + x + " " + y : command.toString();
+    }
+}
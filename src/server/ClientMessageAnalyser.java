@@ -1,15 +1,37 @@
 package server;
 
+import config.MinesweeperConfig;
 import config.Protocol;
-import utils.Regex;
+import messages.BinaryCodec;
+import messages.FrameDecoder;
+import model.GameCommands;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
 
 /**
  * @author Lawal Benjamin
  * This class is responsible for analysing the message received from the client.
+ * The message is parsed byte by byte, directly from the receive buffer, without regex and without intermediate strings.
+ * A message that does not follow the protocol exactly is analysed as the WRONG command.
+ * A message can also hold several TRY, FLAG and CHORD moves, one per line: it is analysed as a BATCH command.
  */
 public class ClientMessageAnalyser {
+    private static final byte[] TRY = ascii(Protocol.TRY_MESSAGE);
+    private static final byte[] FLAG = ascii(Protocol.FLAG_MESSAGE);
+    private static final byte[] CHEAT = ascii(Protocol.CHEAT_MESSAGE);
+    private static final byte[] CHORD = ascii(Protocol.CHORD_MESSAGE);
+    private static final byte[] QUIT = ascii(Protocol.QUIT_MESSAGE);
+    private static final byte[] DELTA = ascii(Protocol.DELTA_MESSAGE);
+    private static final byte[] SYNC = ascii(Protocol.SYNC_MESSAGE);
+    private static final byte[] BINARY = ascii(Protocol.BINARY_MESSAGE);
+    private static final byte[] VIEW = ascii(Protocol.VIEW_MESSAGE);
+    private static final byte[] SESSION = ascii(Protocol.SESSION_MESSAGE);
+    private static final byte[] RESUME = ascii(Protocol.RESUME_MESSAGE);
+    private static final byte[] NEW = ascii(Protocol.NEW_MESSAGE);
+    private static final int TOKEN_LENGTH = 36;//A UUID: 32 hexadecimal figures and 4 dashes
+    private static final byte[] END = ascii(Protocol.END_CLIENT_MESSAGE);
+    private static final byte[] LINE_END = ascii(Protocol.RETURN_CHAR);//Separates the moves of a batch
 
     /**
      * Method to analyse the message received from the client. It will return an string array with
@@ -18,24 +40,362 @@ public class ClientMessageAnalyser {
      * @return An array with the command to process and the coordinates if needed
      */
     public static String[] analyse(String message){
-        if(message.matches(Protocol.RX_GAME_TRY)) {
-            List<String> groups = Regex.getRegexGroups(message, Protocol.RX_GAME_TRY);
-            //If the regex match, I'm sure that the group 1 exists
-            String coordinates = groups.get(1);
-            return new String[]{Protocol.TRY_MESSAGE, coordinates};
+        byte[] bytes = message.getBytes(StandardCharsets.ISO_8859_1);
+        ClientCommand command = new ClientCommand();
+        analyse(bytes, 0, bytes.length, -1, command);
+        switch (command.getCommand()){
+            case TRY:
+            case FLAG:
+            case CHORD:
+            case VIEW:
+                return new String[]{command.getCommand().toString(), command.getX() + " " + command.getY()};
+            case CHEAT:
+            case QUIT:
+            case DELTA:
+            case SYNC:
+            case BINARY:
+            case SESSION:
+            case NEW:
+                return new String[]{command.getCommand().toString()};
+            case BATCH:
+                return new String[]{command.getCommand().toString(), String.valueOf(command.getBatchSize())};
+            case RESUME:
+                return new String[]{command.getCommand().toString(), command.getToken().toString()};
+            default:
+                return new String[]{Protocol.GAME_WRONG_COMMAND};
         }
-        if(message.matches(Protocol.RX_GAME_FLAG)) {
-            List<String> groups = Regex.getRegexGroups(message, Protocol.RX_GAME_FLAG);
-            //If the regex match, I'm sure that the group 1 exists
-            String coordinates = groups.get(1);
-            return new String[]{Protocol.FLAG_MESSAGE, coordinates};
+    }
+
+    /**
+     * Method to analyse the current frame of a frame decoder.
+     * @param frameDecoder The frame decoder holding the message received from the client
+     * @param command The command to fill
+     * @see FrameDecoder#nextFrame()
+     */
+    public static void analyse(FrameDecoder frameDecoder, ClientCommand command){
+        analyse(frameDecoder.array(), frameDecoder.frameStart(), frameDecoder.frameLength(), frameDecoder.mask(), command);
+    }
+
+    /**
+     * Method to analyse a message stored in a (ring) buffer.
+     * The byte i of the message is at the index start + i masked with mask, so a mask of -1 reads a plain array.
+     * @param buffer The buffer containing the message
+     * @param start The index of the first byte of the message
+     * @param length The length of the message, end of message included
+     * @param mask The mask to apply to the indexes
+     * @param command The command to fill with the command and the coordinates if needed
+     */
+    public static void analyse(byte[] buffer, int start, int length, int mask, ClientCommand command){
+        command.set(GameCommands.WRONG, 0, 0);
+        int end = length - END.length;//The end of message is not part of the command
+        if(end < 0 || !matches(buffer, start + end, mask, END, length - end)){
+            return;
+        }
+        switch (buffer[start & mask]){
+            case 'T':
+                parseMove(buffer, start, end, mask, TRY, GameCommands.TRY, false, command);
+                break;
+            case 'F':
+                parseMove(buffer, start, end, mask, FLAG, GameCommands.FLAG, false, command);
+                break;
+            case 'C':
+                parseKeyword(buffer, start, end, mask, CHEAT, GameCommands.CHEAT, command);
+                if(command.getCommand() == GameCommands.WRONG){
+                    parseMove(buffer, start, end, mask, CHORD, GameCommands.CHORD, false, command);
+                }
+                break;
+            case 'Q':
+                parseKeyword(buffer, start, end, mask, QUIT, GameCommands.QUIT, command);
+                break;
+            case 'D':
+                parseKeyword(buffer, start, end, mask, DELTA, GameCommands.DELTA, command);
+                break;
+            case 'S':
+                parseKeyword(buffer, start, end, mask, SYNC, GameCommands.SYNC, command);
+                parseKeyword(buffer, start, end, mask, SESSION, GameCommands.SESSION, command);
+                break;
+            case 'R':
+                parseResume(buffer, start, end, mask, command);
+                break;
+            case 'N':
+                parseKeyword(buffer, start, end, mask, NEW, GameCommands.NEW, command);
+                break;
+            case 'V':
+                parseMove(buffer, start, end, mask, VIEW, GameCommands.VIEW, true, command);
+                break;
+            case 'B':
+                parseKeyword(buffer, start, end, mask, BINARY, GameCommands.BINARY, command);
+                break;
+            default:
+                break;
+        }
+        if(command.getCommand() == GameCommands.WRONG){
+            parseBatch(buffer, start, end, mask, command);
+        }
+    }
+
+    /**
+     * Method to analyse the current frame of a frame decoder switched to the binary protocol.
+     * The frame is the opcode followed by the coordinates for TRY, FLAG, CHORD and VIEW, the session token for RESUME,
+     * or for BATCH the moves, each one being an opcode (TRY, FLAG or CHORD) and its coordinates.
+     * A frame whose length does not match its opcode is analysed as the WRONG command.
+     * @param frameDecoder The frame decoder holding the message received from the client
+     * @param command The command to fill
+     * @see BinaryCodec
+     */
+    public static void analyseBinary(FrameDecoder frameDecoder, ClientCommand command){
+        command.set(GameCommands.WRONG, 0, 0);
+        int length = frameDecoder.frameLength();
+        if(length == 0){
+            return;
+        }
+        GameCommands gameCommand = BinaryCodec.opcodeToCommand(frameDecoder.frameByteAt(0));
+        switch (gameCommand){
+            case TRY:
+            case FLAG:
+            case CHORD:
+            case VIEW:
+                if(length == 9){
+                    command.set(gameCommand, readInt(frameDecoder, 1), readInt(frameDecoder, 5));
+                }
+                break;
+            case BATCH:
+                analyseBinaryBatch(frameDecoder, length, command);
+                break;
+            case RESUME:
+                if(length == 17){
+                    command.set(gameCommand, new UUID(readLong(frameDecoder, 1), readLong(frameDecoder, 9)));
+                }
+                break;
+            case WRONG:
+                break;
+            default:
+                if(length == 1){
+                    command.set(gameCommand, 0, 0);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Method to analyse the moves of a binary BATCH frame. The batch is wrong if one of its moves is not a TRY, a FLAG or a CHORD.
+     * @param frameDecoder The frame decoder holding the message received from the client
+     * @param length The length of the frame
+     * @param command The command to fill
+     */
+    private static void analyseBinaryBatch(FrameDecoder frameDecoder, int length, ClientCommand command){
+        int moves = (length - 1) / BinaryCodec.MOVE_SIZE;
+        if(moves == 0 || moves > MinesweeperConfig.BATCH_MAX_MOVES || (length - 1) % BinaryCodec.MOVE_SIZE != 0){
+            return;
+        }
+        command.clearBatch();
+        for(int index = 1; index < length; index += BinaryCodec.MOVE_SIZE){
+            GameCommands move = BinaryCodec.opcodeToCommand(frameDecoder.frameByteAt(index));
+            if(move != GameCommands.TRY && move != GameCommands.FLAG && move != GameCommands.CHORD){
+                return;
+            }
+            command.addBatchMove(move, readInt(frameDecoder, index + 1), readInt(frameDecoder, index + 5));
+        }
+        command.set(GameCommands.BATCH, 0, 0);
+    }
+
+    /**
+     * Method to read a big endian int of the current frame of a frame decoder.
+     * @param frameDecoder The frame decoder
+     * @param index The index of the first byte in the frame
+     * @return the value read
+     */
+    private static int readInt(FrameDecoder frameDecoder, int index){
+        int value = 0;
+        for(int i = 0; i < 4; i++){
+            value = (value << 8) | (frameDecoder.frameByteAt(index + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Method to read a big endian long of the current frame of a frame decoder.
+     * @param frameDecoder The frame decoder
+     * @param index The index of the first byte in the frame
+     * @return the value read
+     */
+    private static long readLong(FrameDecoder frameDecoder, int index){
+        return ((long) readInt(frameDecoder, index) << 32) | (readInt(frameDecoder, index + 4) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Method to parse a command without argument: the message must be exactly the keyword.
+     * @param buffer The buffer containing the message
+     * @param start The index of the first byte of the message
+     * @param end The length of the message without the end of message
+     * @param mask The mask to apply to the indexes
+     * @param keyword The keyword of the command
+     * @param gameCommand The command
+     * @param command The command to fill
+     */
+    private static void parseKeyword(byte[] buffer, int start, int end, int mask, byte[] keyword, GameCommands gameCommand, ClientCommand command){
+        if(end == keyword.length && matches(buffer, start, mask, keyword, end)){
+            command.set(gameCommand, 0, 0);
+        }
+    }
+
+    /**
+     * Method to parse a move: the keyword followed by two numbers, each preceded by a space.
+     * The command is only set if the whole message is valid.
+     * Signed numbers (VIEW) are capped to the range of an int, like the unsigned ones.
+     * @param buffer The buffer containing the message
+     * @param start The index of the first byte of the message
+     * @param end The length of the message without the end of message
+     * @param mask The mask to apply to the indexes
+     * @param keyword The keyword of the move
+     * @param gameCommand The command of the move
+     * @param isSigned true if the numbers can be negative
+     * @param command The command to fill
+     */
+    private static void parseMove(byte[] buffer, int start, int end, int mask, byte[] keyword, GameCommands gameCommand, boolean isSigned, ClientCommand command){
+        if(end <= keyword.length || !matches(buffer, start, mask, keyword, end)){
+            return;
+        }
+        int position = keyword.length;
+        int x = 0;
+        int y = 0;
+        for(int coordinate = 0; coordinate < 2; coordinate++){
+            if(position >= end || buffer[(start + position) & mask] != ' '){
+                return;
+            }
+            position++;
+            boolean isNegative = isSigned && position < end && buffer[(start + position) & mask] == '-';
+            if(isNegative){
+                position++;
+            }
+            int digitsStart = position;
+            long value = 0;
+            while(position < end){
+                int digit = buffer[(start + position) & mask] - '0';
+                if(digit < 0 || digit > 9){
+                    break;
+                }
+                value = Math.min(value * 10 + digit, Integer.MAX_VALUE);//Too large numbers are out of range, not wrong
+                position++;
+            }
+            if(position == digitsStart){
+                return;
+            }
+            if(isNegative){
+                value = -value;
+            }
+            if(coordinate == 0){
+                x = (int) value;
+            }else {
+                y = (int) value;
+            }
+        }
+        if(position == end){
+            command.set(gameCommand, x, y);
+        }
+    }
+
+    /**
+     * Method to parse a batch: at least two TRY, FLAG or CHORD moves, one per line.
+     * The command is only set to BATCH if every line is a valid move.
+     * @param buffer The buffer containing the message
+     * @param start The index of the first byte of the message
+     * @param end The length of the message without the end of message
+     * @param mask The mask to apply to the indexes
+     * @param command The command to fill
+     */
+    private static void parseBatch(byte[] buffer, int start, int end, int mask, ClientCommand command){
+        command.clearBatch();
+        int lineStart = 0;
+        while(lineStart <= end){
+            int lineEnd = lineStart;
+            while(lineEnd < end && !matches(buffer, start + lineEnd, mask, LINE_END, end - lineEnd)){
+                lineEnd++;
+            }
+            if(lineEnd == end && lineStart == 0){
+                return;//A single line is not a batch
+            }
+            switch (buffer[(start + lineStart) & mask]){
+                case 'T':
+                    parseMove(buffer, start + lineStart, lineEnd - lineStart, mask, TRY, GameCommands.TRY, false, command);
+                    break;
+                case 'F':
+                    parseMove(buffer, start + lineStart, lineEnd - lineStart, mask, FLAG, GameCommands.FLAG, false, command);
+                    break;
+                case 'C':
+                    parseMove(buffer, start + lineStart, lineEnd - lineStart, mask, CHORD, GameCommands.CHORD, false, command);
+                    break;
+                default:
+                    break;
+            }
+            if(command.getCommand() == GameCommands.WRONG || command.getBatchSize() == MinesweeperConfig.BATCH_MAX_MOVES){
+                command.set(GameCommands.WRONG, 0, 0);
+                return;
+            }
+            command.addBatchMove(command.getCommand(), command.getX(), command.getY());
+            command.set(GameCommands.WRONG, 0, 0);
+            lineStart = lineEnd + LINE_END.length;
         }
-        if(message.matches(Protocol.RX_GAME_CHEAT)) {
-            return new String[]{Protocol.CHEAT_MESSAGE};
+        command.set(GameCommands.BATCH, 0, 0);
+    }
+
+    /**
+     * Method to parse the RESUME command: the keyword, a space and the session token,
+     * written as a UUID (8-4-4-4-12 hexadecimal figures).
+     * @param buffer The buffer containing the message
+     * @param start The index of the first byte of the message
+     * @param end The length of the message without the end of message
+     * @param mask The mask to apply to the indexes
+     * @param command The command to fill
+     */
+    private static void parseResume(byte[] buffer, int start, int end, int mask, ClientCommand command){
+        int position = RESUME.length + 1;
+        if(end != position + TOKEN_LENGTH || !matches(buffer, start, mask, RESUME, end) || buffer[(start + RESUME.length) & mask] != ' '){
+            return;
         }
-        if(message.matches(Protocol.RX_GAME_QUIT)) {
-            return new String[]{Protocol.QUIT_MESSAGE};
+        long[] bits = new long[2];
+        int figures = 0;
+        for(int i = 0; i < TOKEN_LENGTH; i++){
+            byte c = buffer[(start + position + i) & mask];
+            boolean isDash = i == 8 || i == 13 || i == 18 || i == 23;
+            if(isDash){
+                if(c != '-'){
+                    return;
+                }
+                continue;
+            }
+            int figure = Character.digit(c, 16);
+            if(figure < 0){
+                return;
+            }
+            bits[figures >>> 4] = (bits[figures >>> 4] << 4) | figure;
+            figures++;
         }
-        return new String[]{Protocol.GAME_WRONG_COMMAND};
+        command.set(GameCommands.RESUME, new UUID(bits[0], bits[1]));
+    }
+
+    /**
+     * Method to check if the expected bytes are at the given position of the buffer.
+     * @param buffer The buffer
+     * @param start The index of the first byte to compare
+     * @param mask The mask to apply to the indexes
+     * @param expected The expected bytes
+     * @param available The number of bytes available from start
+     * @return true if the bytes match, false otherwise.
+     */
+    private static boolean matches(byte[] buffer, int start, int mask, byte[] expected, int available){
+        if(available < expected.length){
+            return false;
+        }
+        for(int i = 0; i < expected.length; i++){
+            if(buffer[(start + i) & mask] != expected[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value){
+        return value.getBytes(StandardCharsets.US_ASCII);
     }
 }
@@ -0,0 +1,199 @@
+package server;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import utils.AsyncLogger;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents an event loop of the non-blocking server.
+ * It multiplexes many client connections on a single thread with a selector.
+ * The connections are given by the acceptor thread with the register method.
+ * @see NioSession
+ * @see MinesweeperServer
+ */
+public class EventLoop implements Runnable {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private final String name;
+    private final Selector selector;
+    private final Queue<SocketChannel> registrations;//Channels accepted but not yet registered to the selector
+    private final long idleCheckInterval;//Maximum time between two checks of the abandoned connections
+    private long lastIdleCheck;
+    private volatile boolean stopWhenIdle;
+    private final SessionRegistry sessionRegistry;//Keeps the games of the connections that dropped
+
+    public EventLoop(String name, SessionRegistry sessionRegistry) throws IOException {
+        this.name = name;
+        this.sessionRegistry = sessionRegistry;
+        this.selector = Selector.open();
+        this.registrations = new ConcurrentLinkedQueue<>();
+        this.idleCheckInterval = Math.max(1, Math.min(1000, MinesweeperConfig.CONNECTION_TIMEOUT));
+        this.lastIdleCheck = System.currentTimeMillis();
+        this.stopWhenIdle = false;
+    }
+
+    /**
+     * Method to give a new connection to the event loop. It can be called from any thread.
+     * @param channel The accepted channel
+     */
+    public void register(SocketChannel channel){
+        registrations.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Method to stop the event loop once all its connections are closed.
+     * The connections already registered will be served until they disconnect.
+     */
+    public void stopWhenIdle(){
+        this.stopWhenIdle = true;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        LOGGER.log(LogLevel.INFO, String.format("[%s] Event loop started.", name));
+        try {
+            while (true) {
+                selector.select(idleCheckInterval);//Wakes up on events or to close the abandoned connections
+                registerPendingChannels();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handleKey(key);
+                }
+                closeAbandonedConnections();
+                if (stopWhenIdle && isIdle()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, String.format("[%s] An error occurred in the event loop. [%s]", name, e.getMessage()));
+        } finally {
+            closeSelector();
+        }
+    }
+
+    /**
+     * Method to close the connections on which the client has not sent anything for longer than the connection timeout.
+     * It replaces the socket timeout of the blocking backend, without sleeping.
+     */
+    private void closeAbandonedConnections(){
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < idleCheckInterval) {
+            return;
+        }
+        lastIdleCheck = now;
+        for (SelectionKey key : selector.keys()) {
+            NioSession session = (NioSession) key.attachment();
+            if (key.isValid() && session.isIdle(now)) {
+                LOGGER.log(LogLevel.INFO, "Timeout or client disconnected.");
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Method to check if the event loop has no connection left.
+     * The keys of closed connections are cancelled, so they are not valid anymore.
+     * @return true if there is no open connection, false otherwise.
+     */
+    private boolean isIdle(){
+        if (!registrations.isEmpty()) {
+            return false;
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to register the accepted channels to the selector.
+     */
+    private void registerPendingChannels(){
+        SocketChannel channel;
+        while ((channel = registrations.poll()) != null) {
+            try {
+                channel.configureBlocking(false);
+                NioSession session = new NioSession(channel, sessionRegistry);
+                channel.register(selector, SelectionKey.OP_READ, session);
+            } catch (IOException e) {
+                LOGGER.log(LogLevel.ERROR, String.format("[%s] An error occurred while registering a client. [%s]", name, e.getMessage()));
+                closeChannel(channel);
+            }
+        }
+    }
+
+    /**
+     * Method to handle the events of a connection.
+     * @param key The selection key of the connection
+     */
+    private void handleKey(SelectionKey key){
+        NioSession session = (NioSession) key.attachment();
+        try {
+            if (key.isReadable() && !session.onReadable()) {
+                //The responses of the last messages of the client are still written before the connection is closed
+                LOGGER.log(LogLevel.INFO, "Timeout or client disconnected.");
+            }
+            //The responses of the messages just read are written at once, without waiting for a write event
+            if (key.isValid() && (key.isWritable() || session.hasPendingWrites())) {
+                session.onWritable();
+            }
+            if (session.isFinished()) {
+                session.close();
+                return;
+            }
+            if (!session.hasPendingWrites()) {
+                key.interestOps(SelectionKey.OP_READ);
+            } else if (session.isInputClosed()) {
+                key.interestOps(SelectionKey.OP_WRITE);//Nothing more to read, the end of stream would be selected again
+            } else {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(LogLevel.ERROR, String.format("[%s] An error occurred with a client. [%s]", name, e.getMessage()));
+            session.close();
+        }
+    }
+
+    /**
+     * Method to close a channel that could not be registered.
+     * @param channel The channel to close
+     */
+    private void closeChannel(SocketChannel channel){
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, "An error occurred while closing the connection. [" + e.getMessage() + "]");
+        }
+    }
+
+    /**
+     * Method to close the selector and all the connections still registered.
+     */
+    private void closeSelector(){
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioSession) {
+                ((NioSession) key.attachment()).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, String.format("[%s] An error occurred while closing the selector. [%s]", name, e.getMessage()));
+        }
+        LOGGER.log(LogLevel.INFO, String.format("[%s] Event loop stopped.", name));
+    }
+}
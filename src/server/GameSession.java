@@ -0,0 +1,602 @@
+package server;
+
+import config.LogLevel;
+import config.Protocol;
+import exception.UnauthorizeMoveException;
+import messages.BinaryCodec;
+import messages.BoardImage;
+import messages.MessageSender;
+import model.GameCommands;
+import model.GameFactory;
+import model.GameStatus;
+import model.IGame;
+import model.RestorableGame;
+import model.ServerResponseType;
+import trace.MoveEvent;
+import utils.AsyncLogger;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * @author Lawal Benjamin
+ * This class holds the state of a single client session: the game and whether the session is still running.
+ * It turns the analysed client commands into the responses of the protocol, without knowing how the
+ * bytes are sent to the client. It is shared by the blocking backend and the non-blocking event loop.
+ * The responses are encoded with the text protocol, or with the binary protocol once the client asked for it.
+ * The session token identifies the game: when the connection drops, the game waits in the session registry
+ * until the client resumes it from a new connection.
+ * Several games can be played on the same connection: NEW resets the game in place, reusing its arrays and encoded boards.
+ * The moves are timed and the games won, lost and abandoned are counted in the metrics of the server.
+ * Each move is also traced by a flight recorder event when the recording is on.
+ * @see MinesweeperBackend
+ * @see NioSession
+ */
+public class GameSession {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private final String backendID;
+    private final String clientID;
+    private boolean isRunning;
+    private IGame game;
+    private boolean isGameOver;//The game is won or lost, only NEW starts another one
+    private int gamesPlayed;
+    private int gamesReused;//Games started by resetting the previous one
+    private boolean isDeltaMode;//Only send the cells changed by a move instead of the whole board
+    private int[] changedCells;//Cells changed by the moves of the current command, reused to sort them
+    private int changedCellCount;
+    private boolean isBinaryMode;//The responses are encoded with the binary protocol
+    private BoardImage boardImage;//Board encoded for the responses, updated with the cells changed by each move
+    private BoardImage cheatBoardImage;//Encoded once the mines are placed (or the view moved)
+    private boolean isCheatBoardEncoded;
+    private final byte[] boardHeader;//Reused header of the binary responses with a board
+    private final SessionStore sessionStore;//Saves the game after each move, null if the games are not saved
+    private final SessionRegistry sessionRegistry;//Keeps the game when the connection drops, null if it can't be resumed
+    private UUID sessionToken;//Token of the game, the id of the backend unless a game was resumed
+    private int storeSlot;//Record of the game in the store, -1 if it is not saved
+    private boolean isMinesSaved;
+    private final ServerMetrics metrics;
+    private long playTime;//Time spent playing the moves of the last command, in nanoseconds
+    private boolean isClosed;
+
+    public GameSession(String backendID, String clientID) {
+        this(backendID, clientID, null);
+    }
+
+    public GameSession(String backendID, String clientID, SessionRegistry sessionRegistry) {
+        this.backendID = backendID;
+        this.clientID = clientID;
+        this.isRunning = true;
+        this.changedCells = new int[16];
+        this.boardHeader = new byte[BinaryCodec.BOARD_HEADER_SIZE];
+        this.sessionRegistry = sessionRegistry;
+        this.sessionStore = sessionRegistry == null ? null : sessionRegistry.getSessionStore();
+        this.sessionToken = UUID.fromString(backendID);
+        this.storeSlot = -1;
+        this.metrics = ServerMetrics.SHARED;
+        metrics.sessionOpened();
+    }
+
+    /**
+     * Method to initialize the game
+     */
+    public void initGame(){
+        LOGGER.log(LogLevel.INFO, backendID, clientID, "Client requested to start a new game.");
+        game = GameFactory.createGame();
+        boardImage = new BoardImage(game.getBoardSize());
+        isCheatBoardEncoded = false;
+        gamesPlayed++;
+        allocateStoreSlot();
+    }
+
+    /**
+     * Method to start another game on the same connection. The game is reset in place and the encoded boards
+     * are cleared, so nothing is allocated. A game in progress is abandoned.
+     * @param out The sender receiving the new board
+     */
+    private void newGame(MessageSender out){
+        abandonGame();
+        freeStoreSlot();
+        game.reset(ThreadLocalRandom.current().nextLong());
+        boardImage.clear();
+        isCheatBoardEncoded = false;
+        isGameOver = false;
+        gamesPlayed++;
+        gamesReused++;
+        allocateStoreSlot();
+        LOGGER.log(LogLevel.INFO, backendID, clientID, "Client started the game " + gamesPlayed + " on the same connection.");
+        encodeBoard(ServerResponseType.CONTINUE, boardImage, out);
+    }
+
+    /**
+     * Method to process the game command. The command is analyzed and the appropriate action is taken.
+     * The response, if any, is appended to the pending messages of the sender, the caller decides when to write it.
+     * @param clientCommand The analyzed message from the client. It contains the command and the coordinates.
+     * @param out The sender receiving the response
+     */
+    public void processGameCommand(ClientCommand clientCommand, MessageSender out){
+        GameCommands command = clientCommand.getCommand();
+        playTime = 0;
+        changedCellCount = 0;
+        boolean isMove = command == GameCommands.TRY || command == GameCommands.FLAG
+                || command == GameCommands.CHORD || command == GameCommands.BATCH;
+        if(isGameOver && (isMove || command == GameCommands.VIEW)){
+            encodeStatus(ServerResponseType.WRONG_COMMAND, out);//The game is over, the client must start a NEW one
+            return;
+        }
+        switch (command) {
+            case TRY:
+            case FLAG:
+            case CHORD:
+                if(playMove(command, clientCommand.getX(), clientCommand.getY(), out)){
+                    encodeMoveResult(out);
+                }
+                break;
+            case BATCH:
+                //A batch with a move out of the board is refused as a whole, so that the client never misses a change
+                if(!isBatchOnBoard(clientCommand)){
+                    encodeStatus(ServerResponseType.INVALID_RANGE, out);
+                    return;
+                }
+                //The moves are played in order, a single response is sent for all of them
+                for(int i = 0; i < clientCommand.getBatchSize(); i++){
+                    if(!playMove(clientCommand.getBatchCommand(i), clientCommand.getBatchX(i), clientCommand.getBatchY(i), out)){
+                        return;
+                    }
+                }
+                encodeMoveResult(out);
+                break;
+            case CHEAT:
+                if(!game.isGameStarted()){
+                    LOGGER.log(LogLevel.DEBUG, backendID, clientID, "Game not started yet.");
+                    encodeStatus(ServerResponseType.GAME_NOT_STARTED, out);
+                    return;
+                }
+                encodeBoard(ServerResponseType.CONTINUE, getCheatBoardImage(), out);
+                break;
+            case DELTA:
+                //The whole board is sent once, the next moves only send the cells they change
+                this.isDeltaMode = true;
+                encodeBoard(ServerResponseType.CONTINUE, boardImage, out);
+                break;
+            case SYNC:
+                encodeBoard(ServerResponseType.CONTINUE, boardImage, out);
+                break;
+            case VIEW:
+                try{
+                    if(!game.moveView(clientCommand.getX(), clientCommand.getY())){
+                        encodeStatus(ServerResponseType.WRONG_COMMAND, out);//The board has a fixed size
+                        break;
+                    }
+                }catch(UnauthorizeMoveException e){
+                    encodeStatus(ServerResponseType.INVALID_RANGE, out);
+                    break;
+                }
+                //Every cell of the view may have changed, and the cheat board with it
+                boardImage.setBoard(game.getBoard());
+                isCheatBoardEncoded = false;
+                encodeBoard(ServerResponseType.CONTINUE, boardImage, out);
+                break;
+            case BINARY:
+                //The answer is the last text message, the next messages of both sides are binary
+                this.isBinaryMode = true;
+                out.append(Protocol.BINARY_MESSAGE + Protocol.END_SERVER_MESSAGE);
+                break;
+            case SESSION:
+                encodeSession(out);
+                break;
+            case RESUME:
+                resume(clientCommand.getToken(), out);
+                break;
+            case NEW:
+                newGame(out);
+                break;
+            case QUIT:
+                stop();
+                break;
+            default:
+                encodeStatus(ServerResponseType.WRONG_COMMAND, out);
+                break;
+        }
+    }
+
+    /**
+     * Method to resume the game of a session token, detached when its connection dropped.
+     * The game of this connection is replaced, and the board of the resumed game is sent.
+     * @param token The session token of the game
+     * @param out The sender receiving the response
+     */
+    private void resume(UUID token, MessageSender out){
+        SessionRegistry.DetachedGame detachedGame = sessionRegistry == null ? null : sessionRegistry.resume(token);
+        if(detachedGame == null){
+            LOGGER.log(LogLevel.INFO, backendID, clientID, "No game to resume for the session " + token + ".");
+            encodeStatus(ServerResponseType.SESSION_NOT_FOUND, out);
+            return;
+        }
+        abandonGame();
+        freeStoreSlot();
+        game = detachedGame.getGame();
+        storeSlot = detachedGame.getStoreSlot();
+        isMinesSaved = game.isGameStarted();
+        sessionToken = token;
+        boardImage = new BoardImage(game.getBoardSize());
+        boardImage.setBoard(game.getBoard());
+        cheatBoardImage = null;
+        isCheatBoardEncoded = false;
+        isGameOver = false;
+        LOGGER.log(LogLevel.INFO, backendID, clientID, "Client resumed the session " + token + ".");
+        sessionRegistry.report();
+        encodeBoard(ServerResponseType.CONTINUE, boardImage, out);
+    }
+
+    /**
+     * Method to encode the session token with the protocol of the session.
+     * @param out The sender receiving the response
+     */
+    private void encodeSession(MessageSender out){
+        if(isBinaryMode){
+            byte[] message = BinaryCodec.encodeSession(sessionToken);
+            out.append(message, 0, message.length);
+            return;
+        }
+        out.append(Protocol.SESSION_MESSAGE + Protocol.SPACE_CHAR + sessionToken + Protocol.END_SERVER_MESSAGE);
+    }
+
+    /**
+     * Method to check that every move of a batch is on the board, before any of them is played.
+     * @param clientCommand The batch
+     * @return true if all the moves are on the board, false otherwise.
+     */
+    private boolean isBatchOnBoard(ClientCommand clientCommand){
+        int size = game.getBoardSize();
+        for(int i = 0; i < clientCommand.getBatchSize(); i++){
+            int x = clientCommand.getBatchX(i);
+            int y = clientCommand.getBatchY(i);
+            if(x < 0 || x >= size || y < 0 || y >= size){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to play a move and record the cells it changed.
+     * If the move ends the game or is out of the board, its response is appended and the next moves must not be played.
+     * @param command TRY, FLAG or CHORD
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param out The sender receiving the response
+     * @return true if the game goes on, false if a response was appended.
+     */
+    private boolean playMove(GameCommands command, int x, int y, MessageSender out){
+        try{
+            MoveEvent event = new MoveEvent();
+            event.begin();
+            long start = System.nanoTime();
+            GameStatus status;
+            try {
+                status = game.playGame(x, y, command);
+            } finally {
+                long time = System.nanoTime() - start;
+                playTime += time;
+                metrics.recordLatency(command, ServerMetrics.Phase.PLAY, time);
+            }
+            event.end();
+            if(event.shouldCommit()){
+                event.sessionId = backendID;
+                event.command = command.name();
+                event.x = x;
+                event.y = y;
+                event.boardSize = game.getBoardSize();
+                event.cellsRevealed = game.getChangedCellCount();
+                event.status = status.name();
+                event.commit();
+            }
+            updateBoardImage();
+            saveGame(status);
+            recordChanges();
+            if(status == GameStatus.GAME_OVER){
+                this.isGameOver = true;
+                metrics.recordGameLost();
+                encodeBoard(ServerResponseType.LOSE, getCheatBoardImage(), out);
+                return false;
+            }else if(status == GameStatus.FINISHED){
+                this.isGameOver = true;
+                metrics.recordGameWon();
+                encodeBoard(ServerResponseType.WIN, getCheatBoardImage(), out);
+                return false;
+            }
+            return true;
+        }catch(UnauthorizeMoveException e){
+            encodeStatus(ServerResponseType.INVALID_RANGE, out);
+            return false;
+        }
+    }
+
+    /**
+     * Method to encode the response of the moves that did not end the game: the board, or the cells they changed in delta mode.
+     * @param out The sender receiving the response
+     */
+    private void encodeMoveResult(MessageSender out){
+        if(LOGGER.isEnabled(LogLevel.DEBUG)){
+            LOGGER.log(LogLevel.DEBUG, backendID, clientID,
+                    "Safe cells left : " + game.getRemainingSafeCells() + " | Flags : " + game.getFlagCount());
+        }
+        if(isDeltaMode && !isBinaryMode){
+            out.append(getDelta());
+            return;
+        }
+        encodeBoard(ServerResponseType.CONTINUE, boardImage, out);
+    }
+
+    /**
+     * Method to add the cells changed by the last move to the cells changed by the current command.
+     */
+    private void recordChanges(){
+        int count = game.getChangedCellCount();
+        if(changedCells.length < changedCellCount + count){
+            changedCells = Arrays.copyOf(changedCells, Math.max(changedCellCount + count, changedCells.length * 2));
+        }
+        for(int i = 0; i < count; i++){
+            changedCells[changedCellCount++] = game.getChangedCell(i);
+        }
+    }
+
+    /**
+     * Method to encode a response carrying a board with the protocol of the session.
+     * The board is copied from its encoded image, it is not rendered again.
+     * @param type The type of the response: CONTINUE, WIN or LOSE
+     * @param image The encoded board to send
+     * @param out The sender receiving the response
+     */
+    private void encodeBoard(ServerResponseType type, BoardImage image, MessageSender out){
+        if(isBinaryMode){
+            int headerLength = BinaryCodec.writeBoardHeader(boardHeader, type, image.getSize());
+            out.append(boardHeader, 0, headerLength);
+            out.append(image.packed(), 0, image.packed().length);
+            return;
+        }
+        out.append(image.text(), 0, image.text().length);
+        switch (type){
+            case WIN:
+                out.append(Protocol.GAME_WON_MESSAGE);
+                break;
+            case LOSE:
+                out.append(Protocol.GAME_LOST_MESSAGE);
+                break;
+            default:
+                out.append(Protocol.RETURN_CHAR);
+                break;
+        }
+    }
+
+    /**
+     * Method to update the encoded board with the cells changed by the last move.
+     */
+    private void updateBoardImage(){
+        int size = game.getBoardSize();
+        for(int i = 0; i < game.getChangedCellCount(); i++){
+            int cell = game.getChangedCell(i);
+            boardImage.set(cell / size, cell % size, game.getCell(cell / size, cell % size));
+        }
+    }
+
+    /**
+     * Method to get the encoded cheat board. It never changes once the mines are placed, so it is encoded once per game
+     * (once per view for an endless game).
+     * @return the encoded cheat board
+     */
+    private BoardImage getCheatBoardImage(){
+        if(cheatBoardImage == null){
+            cheatBoardImage = new BoardImage(game.getBoardSize());
+        }
+        if(!isCheatBoardEncoded){
+            cheatBoardImage.setBoard(game.cheatBoard());
+            isCheatBoardEncoded = true;
+        }
+        return cheatBoardImage;
+    }
+
+    /**
+     * Method to encode a response without board with the protocol of the session.
+     * @param type The type of the response: INVALID_RANGE, WRONG_COMMAND, GAME_NOT_STARTED or SESSION_NOT_FOUND
+     * @param out The sender receiving the response
+     */
+    private void encodeStatus(ServerResponseType type, MessageSender out){
+        if(isBinaryMode){
+            byte[] message = BinaryCodec.encodeStatus(type);
+            out.append(message, 0, message.length);
+            return;
+        }
+        switch (type){
+            case INVALID_RANGE:
+                out.append(Protocol.GAME_INVALID_RANGE_MESSAGE);
+                break;
+            case GAME_NOT_STARTED:
+                out.append(Protocol.GAME_NOT_STARTED_MESSAGE);
+                break;
+            case SESSION_NOT_FOUND:
+                out.append(Protocol.SESSION_NOT_FOUND_MESSAGE);
+                break;
+            default:
+                out.append(Protocol.GAME_WRONG_COMMAND_MESSAGE);
+                break;
+        }
+    }
+
+    /**
+     * Method to get the cells changed by the moves of the last command in the format of a delta update.
+     * The cells are sorted and grouped in runs of consecutive cells of a line:
+     * "DELTA number_of_runs" then a line "x y cells" per run, the message ending with an empty line.
+     * @return The delta update.
+     */
+    private CharSequence getDelta(){
+        Arrays.sort(changedCells, 0, changedCellCount);
+        //A cell changed by several moves of a batch is sent once
+        int count = 0;
+        for(int i = 0; i < changedCellCount; i++){
+            if(count == 0 || changedCells[i] != changedCells[count - 1]){
+                changedCells[count++] = changedCells[i];
+            }
+        }
+        int size = game.getBoardSize();
+        StringBuilder runs = new StringBuilder();
+        int runCount = 0;
+        int i = 0;
+        while(i < count){
+            int x = changedCells[i] / size;
+            int y = changedCells[i] % size;
+            runs.append(x).append(Protocol.SPACE_CHAR).append(y).append(Protocol.SPACE_CHAR);
+            do{
+                runs.append(game.getCell(changedCells[i] / size, changedCells[i] % size));
+                i++;
+            }while(i < count && changedCells[i] == changedCells[i - 1] + 1 && changedCells[i] / size == x);
+            runs.append(Protocol.RETURN_CHAR);
+            runCount++;
+        }
+        String header = Protocol.DELTA_MESSAGE + Protocol.SPACE_CHAR + runCount + Protocol.RETURN_CHAR;
+        return runs.insert(0, header).append(Protocol.RETURN_CHAR);
+    }
+
+    /**
+     * Method to check if the session is still running.
+     * The session keeps running after a game over, the client can start a NEW game.
+     * @return false once the client quit, true otherwise.
+     */
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Method to check if the client switched to the binary protocol.
+     * @return true if the messages are binary, false otherwise.
+     */
+    public boolean isBinaryMode() {
+        return isBinaryMode;
+    }
+
+    /**
+     * Method to stop the session.
+     */
+    public void stop() {
+        this.isRunning = false;
+        abandonGame();
+        freeStoreSlot();
+    }
+
+    /**
+     * Method to count the game as abandoned if it started and is neither won nor lost.
+     * It is then considered over, so that it is counted once.
+     */
+    private void abandonGame(){
+        if(game != null && game.isGameStarted() && !isGameOver){
+            metrics.recordGameAbandoned();
+            this.isGameOver = true;
+        }
+    }
+
+    /**
+     * Method to close the session when its connection is closed.
+     * A game in progress is kept in the session registry so that the client can resume it, with its record in the store.
+     */
+    public void close() {
+        if(isClosed){
+            return;
+        }
+        this.isClosed = true;
+        metrics.sessionClosed();
+        if(gamesPlayed > 0){
+            LOGGER.log(LogLevel.INFO, backendID, clientID, String.format("Games played : %d | Games reused : %d (%d%%)",
+                    gamesPlayed, gamesReused, gamesReused * 100 / gamesPlayed));
+        }
+        if(isRunning && !isGameOver && sessionRegistry != null && game != null && game.isGameStarted()){
+            this.isRunning = false;
+            sessionRegistry.detach(sessionToken, game, storeSlot);
+            storeSlot = -1;//The record now belongs to the registry
+            LOGGER.log(LogLevel.INFO, backendID, clientID, "The game of the session " + sessionToken + " is kept to be resumed.");
+            sessionRegistry.report();
+            return;
+        }
+        stop();
+    }
+
+    /**
+     * Method to save the last move in the store. The whole game is saved once the mines are placed,
+     * then only the cells changed by each move. A game over is removed from the store.
+     * @param status The status of the game after the move
+     */
+    private void saveGame(GameStatus status){
+        if(storeSlot < 0){
+            return;
+        }
+        if(status == GameStatus.GAME_OVER || status == GameStatus.FINISHED){
+            freeStoreSlot();
+        }else if(!isMinesSaved){
+            //The store is only opened for the engines that can be restored
+            sessionStore.saveGame(storeSlot, (RestorableGame) game);
+            isMinesSaved = true;
+        }else {
+            sessionStore.saveChanges(storeSlot, game);
+        }
+    }
+
+    /**
+     * Method to take a record of the store for a new game, under the session token.
+     */
+    private void allocateStoreSlot(){
+        if(sessionStore != null){
+            storeSlot = sessionStore.allocate(sessionToken.toString(), game);
+            isMinesSaved = false;
+        }
+    }
+
+    /**
+     * Method to remove the game from the store, once it can't be played anymore.
+     */
+    private void freeStoreSlot(){
+        if(storeSlot >= 0){
+            sessionStore.free(storeSlot);
+            storeSlot = -1;
+        }
+    }
+
+    /**
+     * Method to get the time spent playing the moves of the last command processed.
+     * @return the time in nanoseconds, 0 if the command was not a move
+     */
+    public long getPlayTime() {
+        return playTime;
+    }
+
+    /**
+     * Method to get the number of cells changed by the moves of the last command processed.
+     * @return the number of cells, 0 if the command was not a move
+     */
+    public int getChangedCellCount() {
+        return changedCellCount;
+    }
+
+    public int getBoardSize() {
+        return game.getBoardSize();
+    }
+
+    public int getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public int getGamesReused() {
+        return gamesReused;
+    }
+
+    public UUID getSessionToken() {
+        return sessionToken;
+    }
+
+    public String getBackendID() {
+        return backendID;
+    }
+
+    public String getClientID() {
+        return clientID;
+    }
+}
@@ -0,0 +1,85 @@
+package server;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import utils.AsyncLogger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Lawal Benjamin
+ * This class serves the metrics of the server as plain text on a local port, for a scraper or curl.
+ * Any request is answered with the metrics in a minimal HTTP response, then the connection is closed.
+ * It runs on its own daemon thread, so it never slows down the game connections.
+ * @see ServerMetrics#scrape()
+ */
+public class MetricsEndpoint implements Runnable {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private final ServerSocket serverSocket;
+    private final ServerMetrics metrics;
+
+    private MetricsEndpoint(ServerSocket serverSocket, ServerMetrics metrics) {
+        this.serverSocket = serverSocket;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Method to start the endpoint on the loopback address.
+     * @param port The port of the endpoint
+     * @param metrics The metrics to serve
+     * @return true if the endpoint is started, false if the port can't be opened.
+     */
+    public static boolean start(int port, ServerMetrics metrics){
+        try {
+            ServerSocket serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            Thread thread = new Thread(new MetricsEndpoint(serverSocket, metrics), "metrics-endpoint");
+            thread.setDaemon(true);
+            thread.start();
+            LOGGER.log(LogLevel.INFO, String.format("Metrics served on http://127.0.0.1:%d/metrics", port));
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, "The metrics endpoint can't be started. [" + e.getMessage() + "]");
+            return false;
+        }
+    }
+
+    @Override
+    public void run() {
+        while(!serverSocket.isClosed()){
+            try (Socket socket = serverSocket.accept()) {
+                socket.setSoTimeout(MinesweeperConfig.MESSAGE_DELAY);
+                skipRequest(socket.getInputStream());
+                byte[] body = metrics.scrape().getBytes(StandardCharsets.US_ASCII);
+                String header = "HTTP/1.0 200 OK\r\nContent-Type: text/plain; version=0.0.4\r\nContent-Length: "
+                        + body.length + "\r\nConnection: close\r\n\r\n";
+                OutputStream out = socket.getOutputStream();
+                out.write(header.getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+            } catch (IOException e) {
+                LOGGER.log(LogLevel.WARN, "An error occurred while serving the metrics. [" + e.getMessage() + "]");
+            }
+        }
+    }
+
+    /**
+     * Method to read the request until its empty line, its content does not matter.
+     * @param in The stream of the request
+     * @throws IOException if the request can't be read.
+     */
+    private static void skipRequest(InputStream in) throws IOException {
+        int matched = 0;//Characters of "\r\n\r\n" matched so far
+        int c;
+        while(matched < 4 && (c = in.read()) != -1){
+            matched = c == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : (c == '\r' ? 1 : 0);
+        }
+    }
+}
@@ -1,15 +1,15 @@
 package server;
 
+import config.LogLevel;
 import config.MinesweeperConfig;
 import config.Protocol;
-import exception.UnauthorizeMoveException;
+import messages.FrameDecoder;
 import messages.MessageReceiver;
 import messages.MessageSender;
-import model.Game;
 import model.GameCommands;
-import model.GameStatus;
 import model.IGame;
-import utils.StringUtils;
+import trace.CommandEvent;
+import utils.AsyncLogger;
 
 import java.io.IOException;
 import java.net.Socket;
@@ -20,22 +20,32 @@ import java.util.UUID;
  * @author Lawal Benjamin
  * This class is responsible for handling the backend of the minesweeper game.
  * It's a thread that listens for messages from the client and processes them with the game logic.
+ * Each command is traced by a flight recorder event when the recording is on.
  * @see Runnable
+ * @see GameSession
  * @see IGame
  */
 public class MinesweeperBackend implements Runnable {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
     private final String backendID;
     private final Socket socket;
     private final String clientID;
     private MessageSender messageSender;
     private MessageReceiver messageReceiver;
     private boolean isRunning;
-    private IGame game;
+    private final GameSession session;
+    private final ClientCommand command;//Reused for every message of the client
+    private final ServerMetrics metrics;
+    private long bytesIn;//Bytes received and sent already counted in the metrics
+    private long bytesOut;
 
-    public MinesweeperBackend(Socket socket) {
+    public MinesweeperBackend(Socket socket, SessionRegistry sessionRegistry) {
         this.backendID = UUID.randomUUID().toString();
         this.socket = socket;
         this.clientID = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
+        this.session = new GameSession(backendID, clientID, sessionRegistry);
+        this.command = new ClientCommand();
+        this.metrics = ServerMetrics.SHARED;
         isRunning = true;
     }
 
@@ -43,26 +53,35 @@ public class MinesweeperBackend implements Runnable {
     @Override
     public void run() {
         initSenderReceiver();
-        System.out.printf("CLIENT [%s] CONNECTED TO BACKEND [%s]\n", clientID, backendID);
+        LOGGER.log(LogLevel.INFO, backendID, clientID, "Client connected to the backend.");
         try {
             socket.setSoTimeout(MinesweeperConfig.CONNECTION_TIMEOUT);
             // Set the timeout on the socket
-            initGame();
+            session.initGame();
             while(isRunning){
-                sleep(MinesweeperConfig.MESSAGE_DELAY);//Simulate a delay to avoid consuming too much CPU and
-                //to give the client time to send a message.
-                String received = messageReceiver.receiveMessage();
-                if(received != null){
-                    System.out.printf("[BACKEND : %s] Received message: %s\n", backendID, received);
-                    String [] analyzedMessage = ClientMessageAnalyser.analyse(received);
-                    processGameCommand(analyzedMessage);
+                //Blocks until a complete message arrives, the socket timeout closes abandoned connections
+                if(messageReceiver.receiveFrame()){
+                    FrameDecoder received = messageReceiver.getFrameDecoder();
+                    recordBytes();
+                    if(!session.isBinaryMode() && LOGGER.isEnabled(LogLevel.DEBUG)){
+                        LOGGER.log(LogLevel.DEBUG, backendID, clientID, "Received message: " + received.frameToString());
+                    }
+                    long start = System.nanoTime();
+                    if(session.isBinaryMode()){
+                        ClientMessageAnalyser.analyseBinary(received, command);
+                    }else {
+                        ClientMessageAnalyser.analyse(received, command);
+                    }
+                    long decoded = System.nanoTime();
+                    metrics.recordLatency(command.getCommand(), ServerMetrics.Phase.DECODE, decoded - start);
+                    processGameCommand(command, start, decoded);
                 } else {
-                    System.out.println("Timeout or client disconnected.");
+                    LOGGER.log(LogLevel.INFO, backendID, clientID, "Timeout or client disconnected.");
                     break;
                 }
             }
         } catch (SocketException | RuntimeException e) {
-            System.out.println("An error occurred while setting the timeout. [" + e.getMessage() + "]");
+            LOGGER.log(LogLevel.ERROR, backendID, clientID, "An error occurred while setting the timeout. [" + e.getMessage() + "]");
         }finally {
             closeConnection();
         }
@@ -71,110 +90,78 @@ public class MinesweeperBackend implements Runnable {
 
 
     /**
-     * Method to simulate a delay
-     * @param delay The delay in milliseconds
+     * Method to process the game command and send the response to the client.
+     * The time spent to encode and send the response, the moves excluded, is recorded in the metrics.
+     * @param command The analyzed message from the client. It contains the command and the coordinates.
+     * @param start The time the analysis of the message started, in nanoseconds
+     * @param decoded The time the message was decoded, in nanoseconds
+     * @see GameSession#processGameCommand(ClientCommand, MessageSender)
      */
-    private void sleep(int delay) {
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+    private void processGameCommand(ClientCommand command, long start, long decoded){
+        CommandEvent event = new CommandEvent();
+        event.begin();
+        session.processGameCommand(command, messageSender);
+        if(messageSender.hasPendingWrites()){
+            messageSender.send();
         }
-    }
-
-
-    /**
-     * Method to process the game command. The command is analyzed and the appropriate action is taken.
-     * @param analyzedMessage The analyzed message from the client. It contains the command and the arguments.
-     */
-    private void processGameCommand(String[] analyzedMessage){
-        if(analyzedMessage==null || analyzedMessage.length == 0){
-            return;
+        event.end();
+        if(event.shouldCommit()){
+            event.sessionId = backendID;
+            event.command = command.getCommand().name();
+            event.boardSize = session.getBoardSize();
+            event.cellsRevealed = session.getChangedCellCount();
+            event.decodeTime = decoded - start;
+            event.commit();
         }
-        GameCommands command = GameCommands.valueOf(analyzedMessage[0]);
-        String message;
-        switch (command) {
-            case TRY:
-            case FLAG:
-                String[] coordinates = analyzedMessage[1].split(" ");
-                int x = Integer.parseInt(coordinates[0]);
-                int y = Integer.parseInt(coordinates[1]);
-                try{
-                    GameStatus status = game.playGame(x, y, command);
-                    if(status == GameStatus.GAME_OVER){
-                        message = getBoardAsString(game.cheatBoard()) + Protocol.GAME_LOST_MESSAGE;
-                        messageSender.sendMessage(message);
-                        this.isRunning = false;
-                        return;
-                    }else if(status == GameStatus.FINISHED){
-                        message = getBoardAsString(game.cheatBoard()) + Protocol.GAME_WON_MESSAGE;
-                        messageSender.sendMessage(message);
-                        this.isRunning = false;
-                        return;
-                    }
-                    message = getBoardAsString(game.getBoard()) + Protocol.RETURN_CHAR;
-                    break;
-                }catch(UnauthorizeMoveException e){
-                    messageSender.sendMessage(Protocol.GAME_INVALID_RANGE_MESSAGE);
-                    return;
-                }
-            case CHEAT:
-                if(!game.isGameStarted()){
-                    System.out.println("Game not started yet.");
-                    message = Protocol.GAME_NOT_STARTED_MESSAGE;
-                    messageSender.sendMessage(message);
-                    return;
-                }
-                message = getBoardAsString(game.cheatBoard()) + Protocol.RETURN_CHAR;
-                break;
-            case QUIT:
-                this.isRunning = false;
-                return;
-            default:
-                message = Protocol.GAME_WRONG_COMMAND_MESSAGE;
-                break;
+        long sent = System.nanoTime();
+        metrics.recordLatency(command.getCommand(), ServerMetrics.Phase.SEND, sent - decoded - session.getPlayTime());
+        LOGGER.log(LogLevel.DEBUG, backendID, clientID, command.getCommand(), sent - decoded, "Command processed.");
+        recordBytes();
+        if(command.getCommand() == GameCommands.BINARY){
+            messageReceiver.switchToBinary();
         }
-        messageSender.sendMessage(message);
+        this.isRunning = session.isRunning();
     }
 
-    /**
-     * Method to get the board as a string in the format required by the protocol.
-     * @param board The board to convert to a string.
-     * @return The board as a string.
-     */
-    private String getBoardAsString(char[][] board){
-        return StringUtils.boardToStringFormating(board, Protocol.RETURN_CHAR);
-    }
 
     /**
-     * Method to initialize the game
+     * Method to add the bytes received and sent since the last call to the metrics.
      */
-    private void initGame(){
-        System.out.printf("[BACKEND : %s] Client [Id : %s] requested to start a new game.\n", backendID,clientID);
-        game = new Game();
+    private void recordBytes(){
+        long received = messageReceiver.getBytesReceived();
+        long sent = messageSender.getBytesSent();
+        metrics.recordBytesIn(received - bytesIn);
+        metrics.recordBytesOut(sent - bytesOut);
+        bytesIn = received;
+        bytesOut = sent;
     }
 
-
     /**
      * Method to initialize the sender and receiver
      */
     private void initSenderReceiver(){
         this.messageSender = new MessageSender(socket);
         this.messageReceiver = new MessageReceiver("SERVER",socket, MinesweeperConfig.DEFAULT_BUFFER, Protocol.END_CLIENT_MESSAGE);
+        messageSender.setSessionID(backendID);
+        messageReceiver.setSessionID(backendID);
+        messageSender.setLogger(LOGGER);
+        messageReceiver.setLogger(LOGGER);
     }
 
 
     /**
-     * Method to close the connection
+     * Method to close the connection. A game in progress is kept to be resumed from another connection.
      */
     private void closeConnection(){
         try {
-            System.out.printf("[BACKEND : %s] Closing the connection with the client [Id : %s]\n", backendID,clientID);
+            LOGGER.log(LogLevel.INFO, backendID, clientID, "Closing the connection with the client.");
             socket.close();
         } catch (IOException e) {
-            System.out.println("An error occurred while closing the connection. [" + e.getMessage() + "]");
+            LOGGER.log(LogLevel.ERROR, backendID, clientID, "An error occurred while closing the connection. [" + e.getMessage() + "]");
         }finally {
             this.isRunning = false;
+            session.close();
+            messageSender.discard();
         }
     }
 }
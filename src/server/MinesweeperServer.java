@@ -1,48 +1,179 @@
 package server;
 
+import config.GameEngine;
+import config.LogLevel;
 import config.MinesweeperConfig;
+import config.ServerMode;
+import utils.AsyncLogger;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.UUID;
 
 /**
  * @author Lawal Benjamin
  * This class represents the Minesweeper server.
- * It listens for client connections and creates a new thread for each client.
+ * It listens for client connections and runs a backend for each client on a platform thread, a pool or a virtual thread,
+ * or dispatches them on a few event loops when it runs in NIO mode.
+ * @see ServerMode
  */
 public class MinesweeperServer {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
 
     public static void main(String[] args) {
+        if(args.length > 0){
+            MinesweeperConfig.SERVER_MODE = ServerMode.valueOf(args[0].toUpperCase());
+        }
+        if(MinesweeperConfig.METRICS_ENABLED){
+            ServerMetrics.SHARED.register();
+            MetricsEndpoint.start(MinesweeperConfig.METRICS_PORT, ServerMetrics.SHARED);
+        }
+        SessionRegistry sessionRegistry = createSessionRegistry(openSessionStore());
+        if(MinesweeperConfig.SERVER_MODE == ServerMode.NIO){
+            runNonBlocking(sessionRegistry);
+        }else {
+            runBlocking(sessionRegistry);
+        }
+    }
+
+    /**
+     * Method to create the registry keeping the games of the connections that dropped.
+     * The games reloaded by the store are put in the registry, so that their clients can resume them after the restart.
+     * A reloaded game that had not started is removed from the store.
+     * The sweeper of the registry is started to evict the expired games.
+     * @param sessionStore The store saving the games, null if they are not saved
+     * @return the registry
+     * @see SessionRegistry
+     */
+    private static SessionRegistry createSessionRegistry(SessionStore sessionStore){
+        SessionRegistry sessionRegistry = new SessionRegistry(MinesweeperConfig.SESSION_RESUME_CAPACITY,
+                MinesweeperConfig.SESSION_RESUME_TTL, sessionStore);
+        if(sessionStore != null){
+            for(SessionStore.StoredGame storedGame : sessionStore.getRecoveredGames().values()){
+                if(storedGame.getGame().isGameStarted()){
+                    sessionRegistry.detach(UUID.fromString(storedGame.getId()), storedGame.getGame(), storedGame.getSlot());
+                }else {
+                    sessionStore.free(storedGame.getSlot());
+                }
+            }
+            sessionRegistry.report();
+        }
+        sessionRegistry.startSweeper();
+        return sessionRegistry;
+    }
+
+    /**
+     * Method to open the store saving the games in progress, which reloads the games saved before a restart.
+     * The games of an endless board are not saved.
+     * @return the store, or null if the games are not saved.
+     * @see SessionStore
+     */
+    private static SessionStore openSessionStore(){
+        if(!MinesweeperConfig.SESSION_STORE_ENABLED || MinesweeperConfig.GAME_ENGINE == GameEngine.ENDLESS){
+            return null;
+        }
+        try {
+            return SessionStore.open(Path.of(MinesweeperConfig.SESSION_STORE_FILE),
+                    MinesweeperConfig.BOARD_SIZE, MinesweeperConfig.SESSION_STORE_CAPACITY);
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, "The session store can't be opened, the games will not be saved. [" + e.getMessage() + "]");
+            return null;
+        }
+    }
+
+    /**
+     * Method to run the server with a blocking backend per client.
+     * The backends are run by a platform thread, a pool or a virtual thread depending on the server mode.
+     * @param sessionRegistry The registry keeping the games of the connections that dropped
+     * @see SessionExecutor
+     */
+    private static void runBlocking(SessionRegistry sessionRegistry){
+        SessionExecutor sessionExecutor = new SessionExecutor(MinesweeperConfig.SERVER_MODE);
         boolean isRunning = true;
-        try (ServerSocket serverSocket = new ServerSocket(MinesweeperConfig.SERVER_PORT)) {
-            System.out.printf("Server started on port %d\n", MinesweeperConfig.SERVER_PORT);
+        //The server socket is opened by a channel so that the accepted sockets are written through their channel
+        try (ServerSocket serverSocket = ServerSocketChannel.open().socket()) {
+            serverSocket.bind(new InetSocketAddress(MinesweeperConfig.SERVER_PORT));
+            LOGGER.log(LogLevel.INFO, String.format("Server started on port %d", MinesweeperConfig.SERVER_PORT));
             serverSocket.setSoTimeout(MinesweeperConfig.SERVER_ACCEPT_TIMEOUT);
             while(isRunning){
                 try{
                     Socket socket = serverSocket.accept();
-                    onClientConnected(socket);
+                    onClientConnected(socket, sessionExecutor, sessionRegistry);
                 }catch (SocketTimeoutException ex){
-                    System.out.println("Server Timeout reach. No more clients will be accepted. Client connected will be served until they disconnect.");
+                    LOGGER.log(LogLevel.WARN, "Server Timeout reach. No more clients will be accepted. Client connected will be served until they disconnect.");
                     isRunning = false;
                     serverSocket.close();
                 }
             }
         }
         catch (IOException ex){
-            System.out.println(ex.getMessage());
-            System.out.println("An error occurred.");
+            LOGGER.log(LogLevel.ERROR, "An error occurred. [" + ex.getMessage() + "]");
+        }finally {
+            sessionExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Method to run the server with non-blocking channels.
+     * The accepted connections are dispatched in round robin on a fixed set of event loops.
+     * @param sessionRegistry The registry keeping the games of the connections that dropped
+     * @see EventLoop
+     */
+    private static void runNonBlocking(SessionRegistry sessionRegistry){
+        EventLoop[] eventLoops = new EventLoop[Math.max(1, MinesweeperConfig.EVENT_LOOP_THREADS)];
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+             Selector acceptSelector = Selector.open()) {
+            for(int i = 0; i < eventLoops.length; i++){
+                eventLoops[i] = new EventLoop("EVENT LOOP " + i, sessionRegistry);
+                new Thread(eventLoops[i], "event-loop-" + i).start();
+            }
+            serverChannel.bind(new InetSocketAddress(MinesweeperConfig.SERVER_PORT));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+            LOGGER.log(LogLevel.INFO, String.format("Server started on port %d with %d event loops", MinesweeperConfig.SERVER_PORT, eventLoops.length));
+            int next = 0;
+            while(acceptSelector.select(MinesweeperConfig.SERVER_ACCEPT_TIMEOUT) > 0){
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel;
+                while((channel = serverChannel.accept()) != null){
+                    ServerMetrics.SHARED.recordAccept();
+                    LOGGER.log(LogLevel.INFO, "Client connected: " + channel.getRemoteAddress());
+                    eventLoops[next].register(channel);
+                    next = (next + 1) % eventLoops.length;
+                }
+            }
+            LOGGER.log(LogLevel.WARN, "Server Timeout reach. No more clients will be accepted. Client connected will be served until they disconnect.");
+        }
+        catch (IOException ex){
+            LOGGER.log(LogLevel.ERROR, "An error occurred. [" + ex.getMessage() + "]");
+        }finally {
+            for(EventLoop eventLoop : eventLoops){
+                if(eventLoop != null){
+                    eventLoop.stopWhenIdle();
+                }
+            }
         }
     }
 
     /**
-     * Method to handle the client connection. Create a new thread for each client and the MinesweeperBackend which will handle the game and the communication with the client.
+     * Method to handle the client connection. Create the MinesweeperBackend which will handle the game and the communication with the client
+     * and run it with the session executor.
      * @param socket The client socket
+     * @param sessionExecutor The executor running the backends
+     * @param sessionRegistry The registry keeping the games of the connections that dropped
      */
-    private static void onClientConnected(Socket socket){
+    private static void onClientConnected(Socket socket, SessionExecutor sessionExecutor, SessionRegistry sessionRegistry){
+        ServerMetrics.SHARED.recordAccept();
         String clientId = socket.getInetAddress().getHostAddress() + ":" + socket.getPort();
-        System.out.println("Client connected: " + clientId);
-        new Thread(new MinesweeperBackend(socket)).start();
+        LOGGER.log(LogLevel.INFO, "Client connected: " + clientId);
+        sessionExecutor.execute(new MinesweeperBackend(socket, sessionRegistry));
     }
 }
@@ -0,0 +1,167 @@
+package server;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import config.Protocol;
+import messages.FrameDecoder;
+import messages.MessageSender;
+import model.GameCommands;
+import trace.CommandEvent;
+import utils.AsyncLogger;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.UUID;
+
+/**
+ * @author Lawal Benjamin
+ * This class represents a client connection handled by an event loop.
+ * It never blocks: it reads what is available on the channel, processes every complete message
+ * with the game session and queues the responses until the channel is ready to write them.
+ * The responses of all the messages of a read are written together with a single gathering write,
+ * so the time recorded for the sending of a response in the metrics only covers its encoding,
+ * as does the flight recorder event of the command.
+ * @see EventLoop
+ * @see GameSession
+ */
+public class NioSession {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private final SocketChannel channel;
+    private final GameSession session;
+    private final FrameDecoder frameDecoder;//Bytes received but not yet processed
+    private final ClientCommand command;//Reused for every message of the client
+    private final MessageSender messageSender;//Responses not yet written
+    private long lastActivity;//Time of the last message received, in milliseconds
+    private boolean isInputClosed;//The client closed its side of the connection
+    private final ServerMetrics metrics;
+
+    public NioSession(SocketChannel channel, SessionRegistry sessionRegistry) throws IOException {
+        this.channel = channel;
+        String clientID = channel.socket().getInetAddress().getHostAddress() + ":" + channel.socket().getPort();
+        this.session = new GameSession(UUID.randomUUID().toString(), clientID, sessionRegistry);
+        this.frameDecoder = new FrameDecoder(Protocol.END_CLIENT_MESSAGE, MinesweeperConfig.DEFAULT_BUFFER, MinesweeperConfig.MAX_FRAME_SIZE);
+        this.command = new ClientCommand();
+        this.messageSender = new MessageSender(channel);
+        messageSender.setSessionID(session.getBackendID());
+        messageSender.setLogger(LOGGER);
+        this.lastActivity = System.currentTimeMillis();
+        this.metrics = ServerMetrics.SHARED;
+        LOGGER.log(LogLevel.INFO, session.getBackendID(), clientID, "Client connected to the backend.");
+        session.initGame();
+    }
+
+    /**
+     * Method called by the event loop when the channel has bytes to read.
+     * Every complete message is processed and its response is queued.
+     * @return false if the client closed the connection, true otherwise.
+     * @throws IOException if the channel can't be read.
+     */
+    public boolean onReadable() throws IOException {
+        int bytesRead;
+        while ((bytesRead = frameDecoder.readFrom(channel)) > 0) {
+            lastActivity = System.currentTimeMillis();
+            metrics.recordBytesIn(bytesRead);
+            processReceivedMessages();
+        }
+        isInputClosed = bytesRead == -1;
+        return !isInputClosed;
+    }
+
+    /**
+     * Method to process all the complete messages received so far.
+     * A message is complete when it ends with the end of client message.
+     */
+    private void processReceivedMessages(){
+        while (session.isRunning() && frameDecoder.nextFrame()) {
+            if (!session.isBinaryMode() && LOGGER.isEnabled(LogLevel.DEBUG)) {
+                LOGGER.log(LogLevel.DEBUG, session.getBackendID(), session.getClientID(), "Received message: " + frameDecoder.frameToString());
+            }
+            long start = System.nanoTime();
+            if (session.isBinaryMode()) {
+                ClientMessageAnalyser.analyseBinary(frameDecoder, command);
+            } else {
+                ClientMessageAnalyser.analyse(frameDecoder, command);
+            }
+            long decoded = System.nanoTime();
+            metrics.recordLatency(command.getCommand(), ServerMetrics.Phase.DECODE, decoded - start);
+            CommandEvent event = new CommandEvent();
+            event.begin();
+            session.processGameCommand(command, messageSender);
+            event.end();
+            if (event.shouldCommit()) {
+                event.sessionId = session.getBackendID();
+                event.command = command.getCommand().name();
+                event.boardSize = session.getBoardSize();
+                event.cellsRevealed = session.getChangedCellCount();
+                event.decodeTime = decoded - start;
+                event.commit();
+            }
+            long encoded = System.nanoTime();
+            metrics.recordLatency(command.getCommand(), ServerMetrics.Phase.SEND, encoded - decoded - session.getPlayTime());
+            LOGGER.log(LogLevel.DEBUG, session.getBackendID(), session.getClientID(), command.getCommand(), encoded - decoded, "Command processed.");
+            if (command.getCommand() == GameCommands.BINARY) {
+                //The bytes following the handshake are binary messages
+                frameDecoder.switchToLengthPrefixed();
+            }
+        }
+    }
+
+    /**
+     * Method called by the event loop when the channel can be written.
+     * It writes as much of the queued responses as the channel accepts.
+     * @throws IOException if the channel can't be written.
+     */
+    public void onWritable() throws IOException {
+        //What the socket does not accept stays pending until the next write event
+        metrics.recordBytesOut(messageSender.write());
+    }
+
+    /**
+     * Method to check if some responses are still waiting to be written.
+     * @return true if there are pending responses, false otherwise.
+     */
+    public boolean hasPendingWrites() {
+        return messageSender.hasPendingWrites();
+    }
+
+    /**
+     * Method to check if the client closed its side of the connection. Its last responses may still be pending.
+     * @return true if the end of stream was read, false otherwise.
+     */
+    public boolean isInputClosed() {
+        return isInputClosed;
+    }
+
+    /**
+     * Method to check if the session can be closed: the client quit or closed its side of the connection,
+     * and every response has been written.
+     * @return true if the session is finished, false otherwise.
+     */
+    public boolean isFinished() {
+        return (!session.isRunning() || isInputClosed) && !messageSender.hasPendingWrites();
+    }
+
+    /**
+     * Method to check if the client has not sent anything for longer than the connection timeout.
+     * @param now The current time in milliseconds
+     * @return true if the connection is abandoned, false otherwise.
+     */
+    public boolean isIdle(long now) {
+        return now - lastActivity >= MinesweeperConfig.CONNECTION_TIMEOUT;
+    }
+
+    /**
+     * Method to close the connection. A game in progress is kept to be resumed from another connection.
+     */
+    public void close(){
+        try {
+            LOGGER.log(LogLevel.INFO, session.getBackendID(), session.getClientID(), "Closing the connection with the client.");
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, session.getBackendID(), session.getClientID(), "An error occurred while closing the connection. [" + e.getMessage() + "]");
+        }finally {
+            session.close();
+            messageSender.discard();
+        }
+    }
+}
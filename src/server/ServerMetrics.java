@@ -0,0 +1,228 @@
+package server;
+
+import config.LogLevel;
+import model.GameCommands;
+import utils.AsyncLogger;
+import utils.LatencyHistogram;
+import utils.RateMeter;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Lawal Benjamin
+ * This class holds the metrics of the server: the connections accepted and their rate, the active sessions,
+ * the bytes received and sent, the games won, lost and abandoned, and for each command the latency of its phases:
+ * the decoding of the message, the moves played and the encoding and sending of the response.
+ * Every metric is updated without locking, so it can be recorded on the hot path of the backends and of the event loops.
+ * They are exposed through JMX and by the scrape endpoint.
+ * @see ServerMetricsMBean
+ * @see MetricsEndpoint
+ */
+public class ServerMetrics implements ServerMetricsMBean {
+    public static final ServerMetrics SHARED = new ServerMetrics();
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};//The percentiles as written by the scrape
+
+    /**
+     * The phases of the processing of a command.
+     */
+    public enum Phase {
+        DECODE,// The analysis of the message received
+        PLAY,// The moves played on the game
+        SEND// The encoding of the response and, with a blocking backend, its sending
+    }
+
+    private final LatencyHistogram[][] latencies;//By command then by phase
+    private final LongAdder connectionsAccepted;
+    private final RateMeter acceptRate;
+    private final AtomicInteger activeSessions;
+    private final LongAdder bytesIn;
+    private final LongAdder bytesOut;
+    private final LongAdder gamesWon;
+    private final LongAdder gamesLost;
+    private final LongAdder gamesAbandoned;
+
+    private ServerMetrics() {
+        this.latencies = new LatencyHistogram[GameCommands.values().length][Phase.values().length];
+        for(LatencyHistogram[] phases : latencies){
+            for(int i = 0; i < phases.length; i++){
+                phases[i] = new LatencyHistogram();
+            }
+        }
+        this.connectionsAccepted = new LongAdder();
+        this.acceptRate = new RateMeter(10);
+        this.activeSessions = new AtomicInteger();
+        this.bytesIn = new LongAdder();
+        this.bytesOut = new LongAdder();
+        this.gamesWon = new LongAdder();
+        this.gamesLost = new LongAdder();
+        this.gamesAbandoned = new LongAdder();
+    }
+
+    /**
+     * Method to register the metrics to the platform MBean server, under minesweeper:type=ServerMetrics.
+     */
+    public void register(){
+        try {
+            ObjectName name = new ObjectName("minesweeper:type=ServerMetrics");
+            if(!ManagementFactory.getPlatformMBeanServer().isRegistered(name)){
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(LogLevel.ERROR, "The metrics can't be registered to JMX. [" + e.getMessage() + "]");
+        }
+    }
+
+    public void recordLatency(GameCommands command, Phase phase, long nanos){
+        latencies[command.ordinal()][phase.ordinal()].record(nanos);
+    }
+
+    public void recordAccept(){
+        connectionsAccepted.increment();
+        acceptRate.mark();
+    }
+
+    public void sessionOpened(){
+        activeSessions.incrementAndGet();
+    }
+
+    public void sessionClosed(){
+        activeSessions.decrementAndGet();
+    }
+
+    public void recordBytesIn(long bytes){
+        if(bytes > 0){
+            bytesIn.add(bytes);
+        }
+    }
+
+    public void recordBytesOut(long bytes){
+        if(bytes > 0){
+            bytesOut.add(bytes);
+        }
+    }
+
+    public void recordGameWon(){
+        gamesWon.increment();
+    }
+
+    public void recordGameLost(){
+        gamesLost.increment();
+    }
+
+    public void recordGameAbandoned(){
+        gamesAbandoned.increment();
+    }
+
+    /**
+     * Method to write the metrics in the plain text format read by the usual scrapers:
+     * one line "name{labels} value" per value, the latencies in nanoseconds.
+     * Only the commands and phases recorded at least once are written.
+     * @return the metrics
+     */
+    public String scrape(){
+        StringBuilder sb = new StringBuilder();
+        line(sb, "minesweeper_connections_accepted_total", "", getConnectionsAccepted());
+        line(sb, "minesweeper_accept_rate", "", getAcceptRate());
+        line(sb, "minesweeper_sessions_active", "", getActiveSessions());
+        line(sb, "minesweeper_bytes_in_total", "", getBytesIn());
+        line(sb, "minesweeper_bytes_out_total", "", getBytesOut());
+        line(sb, "minesweeper_games_total", "{result=\"won\"}", getGamesWon());
+        line(sb, "minesweeper_games_total", "{result=\"lost\"}", getGamesLost());
+        line(sb, "minesweeper_games_total", "{result=\"abandoned\"}", getGamesAbandoned());
+        for(GameCommands command : GameCommands.values()){
+            for(Phase phase : Phase.values()){
+                LatencyHistogram histogram = latencies[command.ordinal()][phase.ordinal()];
+                if(histogram.getCount() == 0){
+                    continue;
+                }
+                String labels = String.format("command=\"%s\",phase=\"%s\"", command, phase.name().toLowerCase(Locale.ROOT));
+                for(int i = 0; i < PERCENTILES.length; i++){
+                    line(sb, "minesweeper_command_latency_ns",
+                            "{" + labels + ",quantile=\"" + QUANTILES[i] + "\"}", histogram.getPercentile(PERCENTILES[i]));
+                }
+                line(sb, "minesweeper_command_latency_ns_max", "{" + labels + "}", histogram.getMax());
+                line(sb, "minesweeper_command_latency_ns_count", "{" + labels + "}", histogram.getCount());
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public long getConnectionsAccepted() {
+        return connectionsAccepted.sum();
+    }
+
+    @Override
+    public double getAcceptRate() {
+        return acceptRate.getRate();
+    }
+
+    @Override
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getGamesWon() {
+        return gamesWon.sum();
+    }
+
+    @Override
+    public long getGamesLost() {
+        return gamesLost.sum();
+    }
+
+    @Override
+    public long getGamesAbandoned() {
+        return gamesAbandoned.sum();
+    }
+
+    @Override
+    public String[] getLatencies() {
+        List<String> lines = new ArrayList<>();
+        for(GameCommands command : GameCommands.values()){
+            for(Phase phase : Phase.values()){
+                LatencyHistogram histogram = latencies[command.ordinal()][phase.ordinal()];
+                if(histogram.getCount() > 0){
+                    lines.add(String.format("%s %s : count %d | p50 %d ns | p90 %d ns | p99 %d ns | p99.9 %d ns | max %d ns",
+                            command, phase, histogram.getCount(), histogram.getPercentile(50), histogram.getPercentile(90),
+                            histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax()));
+                }
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    @Override
+    public long getLatencyPercentile(String command, String phase, double percentile) {
+        try {
+            return latencies[GameCommands.valueOf(command.toUpperCase(Locale.ROOT)).ordinal()]
+                    [Phase.valueOf(phase.toUpperCase(Locale.ROOT)).ordinal()].getPercentile(percentile);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static void line(StringBuilder sb, String name, String labels, Object value){
+        sb.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,45 @@
+package server;
+
+/**
+ * @author Lawal Benjamin
+ * This interface represents the metrics of the server exposed through JMX, under minesweeper:type=ServerMetrics.
+ * The latencies are in nanoseconds.
+ * @see ServerMetrics
+ */
+public interface ServerMetricsMBean {
+    long getConnectionsAccepted();
+
+    /**
+     * @return the number of connections accepted per second, over the last seconds
+     */
+    double getAcceptRate();
+
+    int getActiveSessions();
+
+    long getBytesIn();
+
+    long getBytesOut();
+
+    long getGamesWon();
+
+    long getGamesLost();
+
+    /**
+     * @return the number of started games left without being won or lost (new game, quit, dropped connection not resumed)
+     */
+    long getGamesAbandoned();
+
+    /**
+     * @return one line per command and phase recorded, with its count and percentiles
+     */
+    String[] getLatencies();
+
+    /**
+     * Method to get a percentile of the latency of a command.
+     * @param command The command, as in GameCommands
+     * @param phase The phase: DECODE, PLAY or SEND
+     * @param percentile The percentile, between 0 and 100
+     * @return the latency in nanoseconds, or -1 if the command or the phase is unknown
+     */
+    long getLatencyPercentile(String command, String phase, double percentile);
+}
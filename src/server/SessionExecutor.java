@@ -0,0 +1,143 @@
+package server;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import config.ServerMode;
+import utils.AsyncLogger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Lawal Benjamin
+ * This class is responsible for running the blocking backends with the strategy selected at startup:
+ * a new platform thread per client, a bounded pool of platform threads or a virtual thread per client.
+ * It also keeps track of the sessions that are currently running and, with virtual threads, of the carrier threads.
+ * @see ServerMode
+ * @see MinesweeperBackend
+ */
+public class SessionExecutor {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private static final String CARRIER_THREAD_CLASS = "jdk.internal.misc.CarrierThread";
+    private final ServerMode mode;
+    private final Executor executor;
+    private final boolean isVirtual;//The virtual threads are available and used
+    private final AtomicInteger liveSessions;
+    private final ThreadMXBean threadMXBean;
+
+    public SessionExecutor(ServerMode mode) {
+        this.mode = mode;
+        this.executor = createExecutor(mode);
+        //Without virtual threads, the fallback executor is not an executor service
+        this.isVirtual = mode == ServerMode.VIRTUAL && executor instanceof ExecutorService;
+        this.liveSessions = new AtomicInteger();
+        this.threadMXBean = ManagementFactory.getThreadMXBean();
+    }
+
+    /**
+     * Method to run a backend with the execution strategy of the server.
+     * @param backend The backend to run
+     */
+    public void execute(MinesweeperBackend backend){
+        liveSessions.incrementAndGet();
+        executor.execute(() -> {
+            try {
+                backend.run();
+            } finally {
+                liveSessions.decrementAndGet();
+                report();
+            }
+        });
+        report();
+    }
+
+    /**
+     * Method to stop accepting new backends. The running backends are served until their client disconnects.
+     */
+    public void shutdown(){
+        if(executor instanceof ExecutorService){
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * Method to print the number of live sessions, the number of live threads of the JVM
+     * and, with virtual threads, the number of carrier threads running them.
+     */
+    public void report(){
+        if(!LOGGER.isEnabled(LogLevel.INFO)){
+            return;
+        }
+        if(isVirtual){
+            LOGGER.log(LogLevel.INFO, String.format("[SERVER] Mode : %s | Live sessions : %d | Carrier threads : %d | JVM threads : %d",
+                    mode, getLiveSessions(), getCarrierThreadCount(), getJvmThreadCount()));
+        }else {
+            LOGGER.log(LogLevel.INFO, String.format("[SERVER] Mode : %s | Live sessions : %d | JVM threads : %d",
+                    mode, getLiveSessions(), getJvmThreadCount()));
+        }
+    }
+
+    /**
+     * Method to get the number of sessions currently running.
+     * @return the number of live sessions
+     */
+    public int getLiveSessions() {
+        return liveSessions.get();
+    }
+
+    /**
+     * Method to get the number of carrier threads of the virtual thread scheduler that are alive.
+     * The carriers are the platform threads of the class jdk.internal.misc.CarrierThread,
+     * the virtual threads themselves are not listed by Thread.getAllStackTraces.
+     * @return the number of carrier threads, 0 if the sessions do not run on virtual threads
+     */
+    public int getCarrierThreadCount() {
+        if(!isVirtual){
+            return 0;
+        }
+        int count = 0;
+        for(Thread thread : Thread.getAllStackTraces().keySet()){
+            if(thread.getClass().getName().equals(CARRIER_THREAD_CLASS)){
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Method to get the number of live platform threads of the whole JVM, daemon threads included.
+     * It is not the number of carrier threads (see getCarrierThreadCount): virtual threads are not counted by the thread MXBean
+     * and the count also holds the threads of the server, the logger and the JVM itself.
+     * @return the number of live platform threads
+     */
+    public int getJvmThreadCount() {
+        return threadMXBean.getThreadCount();
+    }
+
+    /**
+     * Method to create the executor for the given mode.
+     * The virtual thread executor is looked up by reflection so that the server still runs on older JVMs,
+     * in which case it falls back to a platform thread per client.
+     * @param mode The server mode
+     * @return the executor running the backends
+     */
+    private static Executor createExecutor(ServerMode mode){
+        switch (mode){
+            case POOL:
+                return Executors.newFixedThreadPool(Math.max(1, MinesweeperConfig.BACKEND_POOL_SIZE));
+            case VIRTUAL:
+                try {
+                    return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    LOGGER.log(LogLevel.WARN, "[SERVER] Virtual threads are not available on this JVM. A platform thread will be used for each client.");
+                    return command -> new Thread(command).start();
+                }
+            default:
+                return command -> new Thread(command).start();
+        }
+    }
+}
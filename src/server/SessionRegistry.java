@@ -0,0 +1,212 @@
+package server;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import model.IGame;
+import utils.AsyncLogger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Lawal Benjamin
+ * This class keeps the games of the clients whose connection dropped, so that they can resume them
+ * from a new connection with their session token.
+ * The registry is bounded: a game is evicted once it has been detached for longer than the time to live,
+ * or when the registry is full, the least recently detached game first. An evicted game is removed from the store
+ * and counted as abandoned in the metrics of the server.
+ * The expired games are evicted by a sweeper thread, and before each detach or resume.
+ * The hits, misses and evictions are counted.
+ * @see GameSession
+ */
+public class SessionRegistry {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private final int capacity;
+    private final long timeToLive;//In milliseconds
+    private final SessionStore sessionStore;//Null if the games are not saved
+    private final LinkedHashMap<UUID, DetachedGame> detachedGames;//Insertion order, the least recently detached game first
+    private final ReentrantLock lock;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    /**
+     * A game waiting for its client, with its record in the store.
+     */
+    public static class DetachedGame {
+        private final IGame game;
+        private final int storeSlot;
+        private final long detachedAt;
+
+        private DetachedGame(IGame game, int storeSlot, long detachedAt) {
+            this.game = game;
+            this.storeSlot = storeSlot;
+            this.detachedAt = detachedAt;
+        }
+
+        public IGame getGame() {
+            return game;
+        }
+
+        public int getStoreSlot() {
+            return storeSlot;
+        }
+    }
+
+    public SessionRegistry(int capacity, long timeToLive, SessionStore sessionStore) {
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+        this.sessionStore = sessionStore;
+        this.detachedGames = new LinkedHashMap<>();
+        this.lock = new ReentrantLock();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    /**
+     * Method to keep the game of a client whose connection dropped.
+     * @param token The session token of the client
+     * @param game The game
+     * @param storeSlot The record of the game in the store, -1 if it is not saved
+     */
+    public void detach(UUID token, IGame game, int storeSlot){
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            evictExpired(now);
+            while(detachedGames.size() >= capacity){
+                evictEldest();
+            }
+            detachedGames.put(token, new DetachedGame(game, storeSlot, now));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to take back a detached game, which is removed from the registry.
+     * @param token The session token of the client
+     * @return the game, or null if the token is unknown or the game was evicted.
+     */
+    public DetachedGame resume(UUID token){
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            evictExpired(now);
+            DetachedGame detachedGame = detachedGames.remove(token);
+            (detachedGame == null ? misses : hits).incrementAndGet();
+            return detachedGame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to evict the games detached for longer than the time to live.
+     * It is called by the sweeper, so that the expired games and their records in the store are freed
+     * even when no client disconnects or resumes.
+     */
+    public void evictExpired(){
+        lock.lock();
+        try {
+            evictExpired(System.currentTimeMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to start the thread evicting the expired games every SESSION_RESUME_SWEEP_INTERVAL milliseconds.
+     */
+    public void startSweeper(){
+        Thread sweeper = new Thread(() -> {
+            while(true){
+                try {
+                    Thread.sleep(MinesweeperConfig.SESSION_RESUME_SWEEP_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                evictExpired();
+            }
+        }, "session-registry-sweeper");
+        sweeper.setDaemon(true);
+        sweeper.start();
+    }
+
+    /**
+     * Method to print the state of the registry.
+     */
+    public void report(){
+        LOGGER.log(LogLevel.INFO, String.format("[SESSION REGISTRY] Detached : %d | Hits : %d | Misses : %d | Evictions : %d",
+                getSize(), getHits(), getMisses(), getEvictions()));
+    }
+
+    /**
+     * Method to get the store saving the games.
+     * @return the store, or null if the games are not saved.
+     */
+    public SessionStore getSessionStore() {
+        return sessionStore;
+    }
+
+    public int getSize(){
+        lock.lock();
+        try {
+            return detachedGames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Method to evict the games detached for longer than the time to live.
+     * The games are in the order they were detached, so only the expired ones are visited.
+     * @param now The current time in milliseconds
+     */
+    private void evictExpired(long now){
+        Iterator<DetachedGame> iterator = detachedGames.values().iterator();
+        while(iterator.hasNext()){
+            DetachedGame detachedGame = iterator.next();
+            if(now - detachedGame.detachedAt < timeToLive){
+                return;
+            }
+            iterator.remove();
+            release(detachedGame);
+        }
+    }
+
+    /**
+     * Method to evict the least recently detached game.
+     */
+    private void evictEldest(){
+        Iterator<Map.Entry<UUID, DetachedGame>> iterator = detachedGames.entrySet().iterator();
+        DetachedGame detachedGame = iterator.next().getValue();
+        iterator.remove();
+        release(detachedGame);
+    }
+
+    private void release(DetachedGame detachedGame){
+        evictions.incrementAndGet();
+        ServerMetrics.SHARED.recordGameAbandoned();
+        if(sessionStore != null && detachedGame.storeSlot >= 0){
+            sessionStore.free(detachedGame.storeSlot);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package server;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import model.GameFactory;
+import model.IGame;
+import model.RestorableGame;
+import utils.AsyncLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Lawal Benjamin
+ * This class saves the games in progress in a memory-mapped file, so that they survive a restart or a crash of the server.
+ * The file is a header followed by fixed-size records, one per game: the id of the session, the seed,
+ * the size and the number of mines, the board as the player sees it (one byte per cell) and the mines (one bit per cell).
+ * A move only writes the cells it changed into the mapped file, and a flusher thread forces the file
+ * to disk in groups, at most every SESSION_STORE_FLUSH_INTERVAL milliseconds, instead of once per move.
+ * On startup, the live records are turned back into games without replaying any move.
+ * @see GameSession
+ */
+public class SessionStore {
+    private static final AsyncLogger LOGGER = AsyncLogger.SHARED;
+    private static final int MAGIC = 0x4D494E45;//"MINE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;//Magic, version, board size, capacity
+
+    //Record layout
+    private static final int STATE = 0;//FREE or LIVE, written last
+    private static final int ID = 8;//Most then least significant bits of the id
+    private static final int SEED = 24;
+    private static final int SIZE = 32;
+    private static final int MINES = 36;
+    private static final int BOARD = 40;
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int boardSize;
+    private final int capacity;
+    private final int recordSize;
+    private final int minesOffset;//Offset of the mines in a record
+    private final ReentrantLock slotLock;
+    private final int[] freeSlots;//Stack of the free records
+    private int freeCount;
+    private final AtomicBoolean isDirty;
+    private final Map<String, StoredGame> recoveredGames;//Games found on startup, by id of session
+    private volatile boolean isRunning;
+
+    /**
+     * A game reloaded from the store, with the record that still holds it.
+     */
+    public static class StoredGame {
+        private final String id;
+        private final int slot;
+        private final RestorableGame game;
+
+        private StoredGame(String id, int slot, RestorableGame game) {
+            this.id = id;
+            this.slot = slot;
+            this.game = game;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getSlot() {
+            return slot;
+        }
+
+        public RestorableGame getGame() {
+            return game;
+        }
+    }
+
+    private SessionStore(FileChannel channel, int boardSize, int capacity) throws IOException {
+        this.channel = channel;
+        this.boardSize = boardSize;
+        this.capacity = capacity;
+        this.minesOffset = BOARD + boardSize * boardSize;
+        //The records are aligned on 8 bytes so that the longs are never split
+        this.recordSize = (minesOffset + ((boardSize * boardSize + 63) >>> 6) * 8 + 7) & ~7;
+        this.slotLock = new ReentrantLock();
+        this.freeSlots = new int[capacity];
+        this.isDirty = new AtomicBoolean();
+        this.recoveredGames = new HashMap<>();
+        long fileSize = HEADER_SIZE + (long) recordSize * capacity;
+        boolean isCompatible = channel.size() == fileSize && isHeaderCompatible();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        if(isCompatible){
+            recover();
+        }else {
+            format();
+        }
+    }
+
+    /**
+     * Method to open the store, reloading the games it holds. A file written for another board size
+     * or another capacity is formatted again.
+     * @param path The file of the store
+     * @param boardSize The size of the boards
+     * @param capacity The maximum number of games saved at the same time
+     * @return the store, with its flusher thread started
+     * @throws IOException if the file can't be opened or mapped.
+     */
+    public static SessionStore open(Path path, int boardSize, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SessionStore store = new SessionStore(channel, boardSize, capacity);
+        store.startFlusher();
+        return store;
+    }
+
+    /**
+     * Method to take a record for a new game. The record only holds the seed and the size until the first move.
+     * @param id The id of the session, a UUID
+     * @param game The new game
+     * @return the record of the game, or -1 if the store is full or the board does not have the size of the records.
+     */
+    public int allocate(String id, IGame game){
+        if(game.getBoardSize() != boardSize){
+            return -1;
+        }
+        int slot;
+        slotLock.lock();
+        try {
+            if(freeCount == 0){
+                return -1;
+            }
+            slot = freeSlots[--freeCount];
+        } finally {
+            slotLock.unlock();
+        }
+        int record = recordOffset(slot);
+        UUID uuid = UUID.fromString(id);
+        buffer.putLong(record + ID, uuid.getMostSignificantBits());
+        buffer.putLong(record + ID + 8, uuid.getLeastSignificantBits());
+        buffer.putLong(record + SEED, game.getSeed());
+        buffer.putInt(record + SIZE, game.getBoardSize());
+        buffer.putInt(record + MINES, game.getNumberOfMines());
+        for(int cell = 0; cell < boardSize * boardSize; cell++){
+            buffer.put(record + BOARD + cell, (byte) MinesweeperConfig.EMPTY_CHAR);
+        }
+        for(int i = record + minesOffset; i < record + recordSize; i++){
+            buffer.put(i, (byte) 0);
+        }
+        buffer.put(record + STATE, LIVE);
+        isDirty.set(true);
+        return slot;
+    }
+
+    /**
+     * Method to save the whole game: the board and the mines. It is called once the mines are placed.
+     * @param slot The record of the game
+     * @param game The game
+     */
+    public void saveGame(int slot, RestorableGame game){
+        int record = recordOffset(slot);
+        long[] mines = new long[(boardSize * boardSize + 63) >>> 6];
+        for(int x = 0; x < boardSize; x++){
+            for(int y = 0; y < boardSize; y++){
+                int cell = x * boardSize + y;
+                buffer.put(record + BOARD + cell, (byte) game.getCell(x, y));
+                if(game.isMine(x, y)){
+                    mines[cell >>> 6] |= 1L << cell;
+                }
+            }
+        }
+        for(int i = 0; i < mines.length; i++){
+            buffer.putLong(record + minesOffset + i * 8, mines[i]);
+        }
+        isDirty.set(true);
+    }
+
+    /**
+     * Method to save the cells changed by the last move of a game.
+     * @param slot The record of the game
+     * @param game The game
+     */
+    public void saveChanges(int slot, IGame game){
+        int record = recordOffset(slot);
+        for(int i = 0; i < game.getChangedCellCount(); i++){
+            int cell = game.getChangedCell(i);
+            buffer.put(record + BOARD + cell, (byte) game.getCell(cell / boardSize, cell % boardSize));
+        }
+        if(game.getChangedCellCount() > 0){
+            isDirty.set(true);
+        }
+    }
+
+    /**
+     * Method to give back the record of a game that is over.
+     * @param slot The record of the game
+     */
+    public void free(int slot){
+        buffer.put(recordOffset(slot) + STATE, FREE);
+        isDirty.set(true);
+        slotLock.lock();
+        try {
+            freeSlots[freeCount++] = slot;
+        } finally {
+            slotLock.unlock();
+        }
+    }
+
+    /**
+     * Method to get the games reloaded on startup. Their records stay taken until they are freed.
+     * @return the games found in the file, by id of session
+     */
+    public Map<String, StoredGame> getRecoveredGames(){
+        return Collections.unmodifiableMap(recoveredGames);
+    }
+
+    /**
+     * Method to force the changes to disk, if there are any.
+     */
+    public void flush(){
+        if(isDirty.getAndSet(false)){
+            buffer.force();
+        }
+    }
+
+    /**
+     * Method to stop the flusher and force the last changes to disk.
+     */
+    public void close(){
+        isRunning = false;
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.log(LogLevel.ERROR, "An error occurred while closing the session store. [" + e.getMessage() + "]");
+        }
+    }
+
+    /**
+     * Method to start the thread forcing the changes to disk in groups.
+     * The last changes are forced when the JVM stops.
+     */
+    private void startFlusher(){
+        isRunning = true;
+        Thread flusher = new Thread(() -> {
+            while(isRunning){
+                try {
+                    Thread.sleep(MinesweeperConfig.SESSION_STORE_FLUSH_INTERVAL);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                flush();
+            }
+        }, "session-store-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "session-store-shutdown"));
+    }
+
+    /**
+     * Method to check if the file was written for the same board size and capacity.
+     * @return true if the records of the file can be read, false otherwise.
+     * @throws IOException if the header can't be read.
+     */
+    private boolean isHeaderCompatible() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getInt() == VERSION
+                && header.getInt() == boardSize && header.getInt() == capacity;
+    }
+
+    /**
+     * Method to write the header and free every record.
+     */
+    private void format(){
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, boardSize);
+        buffer.putInt(12, capacity);
+        for(int slot = capacity - 1; slot >= 0; slot--){
+            buffer.put(recordOffset(slot) + STATE, FREE);
+            freeSlots[freeCount++] = slot;
+        }
+        isDirty.set(true);
+    }
+
+    /**
+     * Method to reload the live records as games, without replaying their moves.
+     */
+    private void recover(){
+        long start = System.nanoTime();
+        char[][] board = new char[boardSize][boardSize];
+        int[] mines = new int[boardSize * boardSize];
+        for(int slot = capacity - 1; slot >= 0; slot--){
+            int record = recordOffset(slot);
+            if(buffer.get(record + STATE) != LIVE){
+                freeSlots[freeCount++] = slot;
+                continue;
+            }
+            String id = new UUID(buffer.getLong(record + ID), buffer.getLong(record + ID + 8)).toString();
+            int mineCount = 0;
+            for(int cell = 0; cell < boardSize * boardSize; cell++){
+                board[cell / boardSize][cell % boardSize] = (char) buffer.get(record + BOARD + cell);
+                if((buffer.getLong(record + minesOffset + (cell >>> 6) * 8) & (1L << cell)) != 0){
+                    mines[mineCount++] = cell;
+                }
+            }
+            RestorableGame game = GameFactory.createGame(buffer.getInt(record + SIZE), buffer.getInt(record + MINES), buffer.getLong(record + SEED));
+            game.restore(board, Arrays.copyOf(mines, mineCount));
+            recoveredGames.put(id, new StoredGame(id, slot, game));
+        }
+        LOGGER.log(LogLevel.INFO, String.format("[SESSION STORE] %d games reloaded in %d ms.", recoveredGames.size(), (System.nanoTime() - start) / 1_000_000));
+    }
+
+    private int recordOffset(int slot){
+        return HEADER_SIZE + slot * recordSize;
+    }
+}
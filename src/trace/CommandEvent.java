@@ -0,0 +1,45 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * @author Lawal Benjamin
+ * This class is the flight recorder event of a command processed by the server, from the analysis of the message
+ * to the sending of the response (to its encoding only with the event loops, which write the responses later).
+ * Its fields are only set when the event is recorded, so it costs almost nothing when the recording is off.
+ * It is disabled by default and enabled by the profile jfr/minesweeper.jfc.
+ * @see MoveEvent
+ */
+@Name("minesweeper.Command")
+@Label("Command")
+@Category({"Minesweeper", "Server"})
+@Description("A command of a client processed by the server")
+@Enabled(false)
+@StackTrace(false)
+public class CommandEvent extends Event {
+    @Label("Session ID")
+    @Description("Id of the backend serving the connection")
+    public String sessionId;
+
+    @Label("Command")
+    public String command;
+
+    @Label("Board Size")
+    public int boardSize;
+
+    @Label("Cells Revealed")
+    @Description("Cells changed by the moves of the command, revealed or flagged")
+    public int cellsRevealed;
+
+    @Label("Decode Time")
+    @Description("Time spent analysing the message before the event started")
+    @Timespan(Timespan.NANOSECONDS)
+    public long decodeTime;
+}
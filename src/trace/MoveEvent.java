@@ -0,0 +1,47 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Lawal Benjamin
+ * This class is the flight recorder event of a move played on a game, whatever its engine: the flood fill of a reveal,
+ * a flag or a chord, and the placement of the mines on the first move.
+ * @see CommandEvent
+ */
+@Name("minesweeper.Move")
+@Label("Move")
+@Category({"Minesweeper", "Game"})
+@Description("A move played on the game of a session")
+@Enabled(false)
+@StackTrace(false)
+public class MoveEvent extends Event {
+    @Label("Session ID")
+    @Description("Id of the backend serving the connection")
+    public String sessionId;
+
+    @Label("Command")
+    public String command;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Board Size")
+    public int boardSize;
+
+    @Label("Cells Revealed")
+    @Description("Cells changed by the move, revealed or flagged")
+    public int cellsRevealed;
+
+    @Label("Status")
+    @Description("Status of the game after the move")
+    public String status;
+}
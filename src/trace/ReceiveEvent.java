@@ -0,0 +1,32 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Lawal Benjamin
+ * This class is the flight recorder event of a message received from a blocking socket.
+ * Its duration includes the wait for the message, so a long one is usually the think time of the other side.
+ * @see SendEvent
+ */
+@Name("minesweeper.Receive")
+@Label("Receive")
+@Category({"Minesweeper", "Socket"})
+@Description("A message received from a blocking socket, the wait for the message included")
+@Enabled(false)
+@StackTrace(false)
+public class ReceiveEvent extends Event {
+    @Label("Session ID")
+    @Description("Id of the backend serving the connection, empty on the client side")
+    public String sessionId;
+
+    @Label("Bytes Read")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,32 @@
+package trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * @author Lawal Benjamin
+ * This class is the flight recorder event of a write of the pending messages to a socket,
+ * blocking or not: on a non-blocking channel, only the bytes accepted by the socket are written.
+ * @see ReceiveEvent
+ */
+@Name("minesweeper.Send")
+@Label("Send")
+@Category({"Minesweeper", "Socket"})
+@Description("A write of the pending messages to a socket")
+@Enabled(false)
+@StackTrace(false)
+public class SendEvent extends Event {
+    @Label("Session ID")
+    @Description("Id of the backend serving the connection, empty on the client side")
+    public String sessionId;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,276 @@
+package utils;
+
+import config.LogLevel;
+import config.MinesweeperConfig;
+import model.GameCommands;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author Lawal Benjamin
+ * This class writes the log records of the server without making the game threads wait for the console or the disk.
+ * A record is a level, a time and structured fields (backend, client, command, latency and message).
+ * The records are put in a bounded ring buffer of reused slots, without locking: a slot is claimed with a compare and set,
+ * and a single writer thread drains them and writes them in batches, as "key=value" lines.
+ * When the buffer is 3/4 full, the DEBUG and INFO records are sampled, and when it is full the records are dropped:
+ * a game thread never waits. The number of records dropped or sampled out is written by the writer.
+ * @see LogLevel
+ */
+public class AsyncLogger {
+    public static final AsyncLogger SHARED = new AsyncLogger(MinesweeperConfig.LOG_LEVEL, MinesweeperConfig.LOG_FILE,
+            MinesweeperConfig.LOG_BUFFER_SIZE, MinesweeperConfig.LOG_SAMPLE_RATE, MinesweeperConfig.LOG_FLUSH_INTERVAL);
+
+    /**
+     * A slot of the ring buffer, reused by the records.
+     */
+    private static class Record {
+        private LogLevel level;
+        private long time;
+        private String backendID;
+        private String clientID;
+        private GameCommands command;
+        private long latency;//In nanoseconds, -1 if none
+        private String message;
+    }
+
+    private final LogLevel level;
+    private final Record[] records;
+    private final AtomicLongArray sequences;//Sequence expected in each slot: its position when free, its position + 1 when written
+    private final int mask;
+    private final AtomicLong tail;//Next position to claim
+    private final AtomicLong head;//Next position to write, only moved by the writer
+    private final int sampleRate;
+    private final AtomicLong sampleCounter;
+    private final LongAdder dropped;
+    private final LongAdder sampledOut;
+    private final long flushInterval;//In nanoseconds
+    private final Writer writer;
+    private final StringBuilder batch;//Only used by the writer thread
+
+    private AsyncLogger(LogLevel level, String file, int bufferSize, int sampleRate, int flushInterval) {
+        this.level = level;
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.records = new Record[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++){
+            records[i] = new Record();
+            sequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleCounter = new AtomicLong();
+        this.dropped = new LongAdder();
+        this.sampledOut = new LongAdder();
+        this.flushInterval = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushInterval));
+        this.writer = openWriter(file);
+        this.batch = new StringBuilder(4096);
+        Thread thread = new Thread(this::drainLoop, "async-logger");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "async-logger-shutdown"));
+    }
+
+    /**
+     * Method to check if the records of a level are kept. A message that is costly to build should be built only then.
+     * @param level The level of the record
+     * @return true if the records of the level are kept, false otherwise.
+     */
+    public boolean isEnabled(LogLevel level){
+        return level.compareTo(this.level) >= 0;
+    }
+
+    public void log(LogLevel level, String message){
+        log(level, null, null, null, -1, message);
+    }
+
+    public void log(LogLevel level, String backendID, String clientID, String message){
+        log(level, backendID, clientID, null, -1, message);
+    }
+
+    /**
+     * Method to add a record. It never blocks: the record is dropped if the buffer is full.
+     * @param level The level of the record
+     * @param backendID The id of the backend, null if none
+     * @param clientID The address of the client, null if none
+     * @param command The command of the client, null if none
+     * @param latency The time taken by the command in nanoseconds, -1 if none
+     * @param message The message
+     */
+    public void log(LogLevel level, String backendID, String clientID, GameCommands command, long latency, String message){
+        if(!isEnabled(level)){
+            return;
+        }
+        if(level.compareTo(LogLevel.WARN) < 0 && tail.get() - head.get() >= (records.length >> 2) * 3
+                && sampleCounter.incrementAndGet() % sampleRate != 0){
+            sampledOut.increment();
+            return;
+        }
+        long position = tail.get();
+        while(true){
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if(difference == 0){
+                if(tail.compareAndSet(position, position + 1)){
+                    break;
+                }
+                position = tail.get();
+            }else if(difference < 0){
+                //The writer has not freed the slot yet: the buffer is full
+                dropped.increment();
+                return;
+            }else {
+                position = tail.get();
+            }
+        }
+        Record record = records[(int) (position & mask)];
+        record.level = level;
+        record.time = System.currentTimeMillis();
+        record.backendID = backendID;
+        record.clientID = clientID;
+        record.command = command;
+        record.latency = latency;
+        record.message = message;
+        //Publishes the record to the writer
+        sequences.set((int) (position & mask), position + 1);
+    }
+
+    /**
+     * Method run by the writer thread: it writes the records available, then waits for the next ones.
+     */
+    private void drainLoop(){
+        while(true){
+            if(drain() == 0){
+                LockSupport.parkNanos(flushInterval);
+            }
+        }
+    }
+
+    /**
+     * Method to write all the records available in a single batch.
+     * @return the number of records written
+     */
+    private synchronized int drain(){
+        int count = 0;
+        long position = head.get();
+        while(true){
+            int slot = (int) (position & mask);
+            if(sequences.get(slot) != position + 1){
+                break;//Not written yet
+            }
+            Record record = records[slot];
+            format(record);
+            record.backendID = null;
+            record.clientID = null;
+            record.message = null;
+            //Frees the slot for the next turn of the ring
+            sequences.set(slot, position + records.length);
+            position++;
+            head.set(position);
+            count++;
+        }
+        reportLosses();
+        if(batch.length() > 0){
+            try {
+                writer.write(batch.toString());
+                writer.flush();
+            } catch (IOException e) {
+                System.out.println("The log records can't be written. [" + e.getMessage() + "]");
+            }
+            batch.setLength(0);
+        }
+        return count;
+    }
+
+    /**
+     * Method to add to the batch the number of records dropped or sampled out since the last batch.
+     */
+    private void reportLosses(){
+        long droppedCount = dropped.sumThenReset();
+        long sampledCount = sampledOut.sumThenReset();
+        if(droppedCount > 0 || sampledCount > 0){
+            batch.append(Instant.ofEpochMilli(System.currentTimeMillis())).append(" level=").append(LogLevel.WARN)
+                    .append(" dropped=").append(droppedCount).append(" sampled_out=").append(sampledCount)
+                    .append(" msg=\"Log records lost under load\"\n");
+        }
+    }
+
+    private void format(Record record){
+        batch.append(Instant.ofEpochMilli(record.time)).append(" level=").append(record.level);
+        if(record.backendID != null){
+            batch.append(" backend=").append(record.backendID);
+        }
+        if(record.clientID != null){
+            batch.append(" client=").append(record.clientID);
+        }
+        if(record.command != null){
+            batch.append(" command=").append(record.command);
+        }
+        if(record.latency >= 0){
+            batch.append(" latency_us=").append(record.latency / 1000).append('.').append(record.latency / 100 % 10);
+        }
+        batch.append(" msg=\"");
+        String message = record.message == null ? "" : record.message;
+        for(int i = 0; i < message.length(); i++){
+            char c = message.charAt(i);
+            if(c == '\r'){
+                batch.append("\\r");
+            }else if(c == '\n'){
+                batch.append("\\n");
+            }else if(c == '"' || c == '\\'){
+                batch.append('\\').append(c);
+            }else {
+                batch.append(c);
+            }
+        }
+        batch.append("\"\n");
+    }
+
+    /**
+     * Method to open the destination of the records: the file, appended, or the console if there is no file.
+     * @param file The path of the file, empty for the console
+     * @return the writer
+     */
+    private static Writer openWriter(String file){
+        if(file != null && !file.isEmpty()){
+            try {
+                return Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                System.out.println("The log file can't be opened, the records are written to the console. [" + e.getMessage() + "]");
+            }
+        }
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                System.out.print(new String(buffer, offset, length));
+            }
+
+            @Override
+            public void write(String text) {
+                System.out.print(text);
+            }
+
+            @Override
+            public void flush() {
+                System.out.flush();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,123 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Lawal Benjamin
+ * This class records durations in a histogram that many threads can update without locking.
+ * The buckets are log-linear: the durations below SUB_BUCKETS have a bucket each, and above it each power of two
+ * is split into HALF (SUB_BUCKETS / 2) buckets of the same width, so a percentile is known to within 1/HALF
+ * of its value (about 6%), whatever the range of the durations.
+ * A record is a few atomic increments, nothing is allocated.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;//Buckets of width 1 below SUB_BUCKETS
+    private static final int HALF = SUB_BUCKETS >>> 1;//Buckets per power of two above SUB_BUCKETS
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BITS) * HALF;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+    public LatencyHistogram() {
+        this.buckets = new AtomicLongArray(BUCKET_COUNT);
+        this.count = new LongAdder();
+        this.sum = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    /**
+     * Method to record a duration.
+     * @param value The duration, negative durations are recorded as 0
+     */
+    public void record(long value){
+        if(value < 0){
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount(){
+        return count.sum();
+    }
+
+    public long getMax(){
+        return max.get();
+    }
+
+    /**
+     * Method to get the mean of the durations recorded.
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean(){
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Method to get a percentile of the durations recorded.
+     * The value returned is the upper bound of the bucket holding the percentile, never above the maximum.
+     * @param percentile The percentile, between 0 and 100
+     * @return the duration below which the given percentage of the durations are, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile){
+        long total = 0;
+        long[] counts = new long[BUCKET_COUNT];
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if(total == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            seen += counts[i];
+            if(seen >= rank){
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Method to forget the durations recorded.
+     * The records made during the reset may be partially kept.
+     */
+    public void reset(){
+        for(int i = 0; i < BUCKET_COUNT; i++){
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static int bucketOf(long value){
+        if(value < SUB_BUCKETS){
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);//At least SUB_BITS
+        int shift = exponent - SUB_BITS + 1;
+        //The bits after the leading one select the bucket inside the power of two
+        return SUB_BUCKETS + (exponent - SUB_BITS) * HALF + (int) ((value >>> shift) - HALF);
+    }
+
+    private static long upperBound(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / HALF + SUB_BITS;
+        int shift = exponent - SUB_BITS + 1;
+        long lower = (long) (HALF + (bucket - SUB_BUCKETS) % HALF) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,51 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author Lawal Benjamin
+ * This class measures the rate of an event over the last seconds, without locking.
+ * The events are counted in one slot per second, reused in a ring: the first event of a new second clears the slot.
+ * An event counted by another thread while its slot is being cleared may be lost, which is negligible for a rate.
+ */
+public class RateMeter {
+    private final int window;//Number of complete seconds of the rate
+    private final AtomicLongArray seconds;//Second counted by each slot
+    private final AtomicLongArray counts;
+
+    /**
+     * @param window The number of seconds over which the rate is averaged
+     */
+    public RateMeter(int window) {
+        this.window = Math.max(1, window);
+        //One more slot for the second in progress, which is not part of the rate
+        this.seconds = new AtomicLongArray(this.window + 1);
+        this.counts = new AtomicLongArray(this.window + 1);
+    }
+
+    public void mark(){
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % seconds.length());
+        long slotSecond = seconds.get(slot);
+        if(slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)){
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    /**
+     * Method to get the rate over the last complete seconds.
+     * @return the number of events per second
+     */
+    public double getRate(){
+        long now = System.currentTimeMillis() / 1000;
+        long total = 0;
+        for(int slot = 0; slot < seconds.length(); slot++){
+            long second = seconds.get(slot);
+            if(second < now && second >= now - window){
+                total += counts.get(slot);
+            }
+        }
+        return (double) total / window;
+    }
+}
@@ -2,6 +2,8 @@ package utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -9,8 +11,11 @@ import java.util.regex.Pattern;
  * @author Lawal Benjamin
  * This class is responsible for analyzing messages using regex.
  * It uses regex to match the message and retrieve groups from it.
+ * The patterns are compiled once and cached, so a regex is never compiled twice.
  */
 public class Regex {
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
     /**
      * Method to analyze the message received from the client. It uses regex to match the message and retrieve groups from it.
      * @param message The message received
@@ -18,8 +23,7 @@ public class Regex {
      * @return All the groups matched by the regex.
      */
     public static List<String> getRegexGroups(String message, String regex){
-        Pattern pattern = Pattern.compile(regex);
-        Matcher groups = pattern.matcher(message);
+        Matcher groups = getPattern(regex).matcher(message);
         if(groups.matches()){
             List<String> result = new ArrayList<>();
             for(int i = 1; i <= groups.groupCount(); i++){
@@ -30,4 +34,24 @@ public class Regex {
         return null;
     }
 
+    /**
+     * Method to check if the whole message matches the regex.
+     * It replaces String.matches, which compiles the regex on every call.
+     * @param message The message
+     * @param regex The regex to match the message
+     * @return true if the message matches, false otherwise.
+     */
+    public static boolean matches(String message, String regex){
+        return getPattern(regex).matcher(message).matches();
+    }
+
+    /**
+     * Method to get the compiled pattern of a regex, compiling it on the first call only.
+     * @param regex The regex
+     * @return the compiled pattern
+     */
+    public static Pattern getPattern(String regex){
+        return PATTERNS.computeIfAbsent(regex, Pattern::compile);
+    }
+
 }